@@ -0,0 +1,60 @@
+#!/usr/bin/env bash
+# Builds an AppCDS archive for the startup profile from a training run, then prints the time to the
+# first successful request with and without it.
+#
+#   scripts/cds-archive.sh            # archive lands in target/cds/app.jsa
+#   java -XX:SharedArchiveFile=target/cds/app.jsa -cp "$(cat target/cds/classpath)" \
+#        com.luiz.libraryapi.LibraryApiApplication --spring.profiles.active=startup
+set -euo pipefail
+cd "$(dirname "$0")/.."
+
+MVN=${MVN:-./mvnw}
+OUT=target/cds
+MAIN=com.luiz.libraryapi.LibraryApiApplication
+PORT=${PORT:-18080}
+DB="--spring.datasource.url=jdbc:h2:mem:cds;DB_CLOSE_DELAY=-1"
+
+# the startup build profile adds the component index, so the archived run skips classpath scanning
+"$MVN" -q -B -P startup clean package -DskipTests
+rm -rf "$OUT"
+mkdir -p "$OUT/app"
+(cd "$OUT/app" && jar -xf ../../library-api-*.jar)
+
+# only classes read from plain jars on -cp are archived: not nested jars and not directories
+jar -cf "$OUT/application.jar" -C "$OUT/app/BOOT-INF/classes" .
+CP="$OUT/application.jar:$(ls "$OUT"/app/BOOT-INF/lib/*.jar | tr '\n' ':' | sed 's/:$//')"
+echo "$CP" > "$OUT/classpath"
+
+wait_for_first_request() {
+  until curl -sf -o /dev/null "http://localhost:$PORT/api/books?tittle=x&page=0&size=10"; do
+    kill -0 "$1" 2>/dev/null || { echo "application exited" >&2; exit 1; }
+    sleep 0.01
+  done
+}
+
+# training run: start, exercise the main endpoints and shut down cleanly so the class list is complete
+java -XX:DumpLoadedClassList="$OUT/classes.lst" -cp "$CP" $MAIN \
+  --spring.profiles.active=startup --server.port=$PORT "$DB" > "$OUT/training.log" 2>&1 &
+PID=$!
+wait_for_first_request $PID
+curl -sf -o /dev/null -H 'Content-Type: application/json' \
+  -d '{"isbn":"cds-1","author":"Fulano","tittle":"Aventuras"}' "http://localhost:$PORT/api/books"
+curl -sf -o /dev/null "http://localhost:$PORT/api/books/1"
+kill $PID
+wait $PID || true
+
+java -Xshare:dump -XX:SharedClassListFile="$OUT/classes.lst" -XX:SharedArchiveFile="$OUT/app.jsa" -cp "$CP" \
+  > "$OUT/dump.log" 2>&1
+
+time_to_first_request() {
+  local start=$(date +%s%N)
+  java "$@" -cp "$CP" $MAIN --spring.profiles.active=startup --server.port=$PORT "$DB" > /dev/null 2>&1 &
+  local pid=$!
+  wait_for_first_request $pid
+  echo $(( ($(date +%s%N) - start) / 1000000 ))
+  kill $pid
+  wait $pid || true
+}
+
+echo "time to first request without archive: $(time_to_first_request -Xshare:off) ms"
+echo "time to first request with archive:    $(time_to_first_request -XX:SharedArchiveFile=$OUT/app.jsa -Xshare:on) ms"
@@ -1,6 +1,7 @@
 package com.luiz.libraryapi;
 
-import org.modelmapper.ModelMapper;
+import com.luiz.libraryapi.api.mapper.BookMapper;
+import com.luiz.libraryapi.api.mapper.LoanMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.Bean;
@@ -13,8 +14,13 @@ public class LibraryApiApplication {
 	}
 
 	@Bean
-	public ModelMapper modelMapper() {
-		return new ModelMapper();
+	public BookMapper bookMapper() {
+		return new BookMapper();
+	}
+
+	@Bean
+	public LoanMapper loanMapper() {
+		return new LoanMapper();
 	}
 
 }
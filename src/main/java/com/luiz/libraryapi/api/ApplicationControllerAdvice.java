@@ -2,6 +2,9 @@ package com.luiz.libraryapi.api;
 
 import com.luiz.libraryapi.api.exception.ApiErrors.ApiErrors;
 import com.luiz.libraryapi.exception.BusinessException;
+import com.luiz.libraryapi.exception.TooManyRequestsException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -11,6 +14,8 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.util.concurrent.RejectedExecutionException;
+
 @RestControllerAdvice
 public class ApplicationControllerAdvice {
 
@@ -32,4 +37,26 @@ public class ApplicationControllerAdvice {
         return new ResponseEntity(new ApiErrors(ex), ex.getStatus());
     }
 
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity handleOptimisticLockingFailureException(OptimisticLockingFailureException ex) {
+        ResponseStatusException conflict = new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Book was modified");
+        return new ResponseEntity(new ApiErrors(conflict), conflict.getStatus());
+    }
+
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity handleRejectedExecutionException(RejectedExecutionException ex) {
+        ResponseStatusException unavailable = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Server busy, try again later");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(new ApiErrors(unavailable));
+    }
+
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity handleTooManyRequestsException(TooManyRequestsException ex) {
+        ResponseStatusException tooMany = new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(new ApiErrors(tooMany));
+    }
+
 }
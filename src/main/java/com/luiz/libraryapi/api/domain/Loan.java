@@ -13,12 +13,16 @@ import java.time.LocalDate;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table
+@Table(indexes = {
+        @Index(name = "idx_loan_isbn_returned", columnList = "isbn, returned"),
+        @Index(name = "idx_loan_returned_loan_date", columnList = "returned, loanDate, id")
+})
 public class Loan {
 
     @Id
     @Column
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "loan_sequence")
+    @SequenceGenerator(name = "loan_sequence", sequenceName = "loan_sequence", allocationSize = 50)
     private Long id;
 
     @Column
@@ -27,7 +31,7 @@ public class Loan {
     @Column
     private String customer;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     private Book book;
 
     @Column
@@ -0,0 +1,40 @@
+package com.luiz.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookImportReport {
+
+    private long imported;
+
+    private long rejected;
+
+    @Builder.Default
+    private List<RowError> errors = new ArrayList<>();
+
+    public void addError(long line, String isbn, String message) {
+        rejected++;
+        errors.add(new RowError(line, isbn, message));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+
+        private long line;
+
+        private String isbn;
+
+        private String message;
+    }
+}
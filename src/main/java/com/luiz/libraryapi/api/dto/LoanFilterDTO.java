@@ -0,0 +1,17 @@
+package com.luiz.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanFilterDTO {
+
+    private String customer;
+    private String isbn;
+    private Boolean returned;
+}
@@ -0,0 +1,22 @@
+package com.luiz.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnDTO {
+
+    @Builder.Default
+    private List<Long> ids = new ArrayList<>();
+
+    @Builder.Default
+    private List<String> isbns = new ArrayList<>();
+}
@@ -0,0 +1,52 @@
+package com.luiz.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanReturnReport {
+
+    private long returned;
+
+    @Builder.Default
+    private List<Item> items = new ArrayList<>();
+
+    public void add(Long loanId, String isbn, Status status) {
+        if (status == Status.RETURNED) {
+            returned++;
+        }
+        items.add(new Item(loanId, isbn, status));
+    }
+
+    public List<Long> returnedLoanIds() {
+        return items.stream()
+                .filter(item -> item.getStatus() == Status.RETURNED)
+                .map(Item::getLoanId)
+                .collect(Collectors.toList());
+    }
+
+    public enum Status {
+        RETURNED, ALREADY_RETURNED, NOT_FOUND
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Item {
+
+        private Long loanId;
+
+        private String isbn;
+
+        private Status status;
+    }
+}
@@ -0,0 +1,23 @@
+package com.luiz.libraryapi.api.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoanSummaryDTO {
+
+    private Long id;
+    private String customer;
+    private String isbn;
+    private LocalDate loanDate;
+    private Boolean returned;
+    private Long bookId;
+    private String bookTittle;
+}
@@ -0,0 +1,110 @@
+package com.luiz.libraryapi.api.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Page body with only the content and where the page sits: an {@code offset} and {@code total} for
+ * offset pages, a {@code next} cursor for keyset pages. Absent fields are left out of the output.
+ * The content is a view over the repository result, mapped item by item while it is written, so no
+ * intermediate list is built; every read of {@link #getContent()} maps again.
+ */
+@Getter
+@JsonSerialize(using = PageResponse.Serializer.class)
+public class PageResponse<T> {
+
+    private final List<T> content;
+
+    private final Long offset;
+
+    private final String next;
+
+    private final Long total;
+
+    private PageResponse(List<T> content, Long offset, String next, Long total) {
+        this.content = content;
+        this.offset = offset;
+        this.next = next;
+        this.total = total;
+    }
+
+    public static <S, T> PageResponse<T> of(Page<S> page, Function<? super S, ? extends T> mapper) {
+        long offset = page.getPageable().isPaged() ? page.getPageable().getOffset() : 0;
+        return new PageResponse<>(new MappedList<>(page.getContent(), mapper), offset, null, page.getTotalElements());
+    }
+
+    public static <S, T> PageResponse<T> of(Slice<S> slice, Function<? super S, ? extends T> mapper, String next) {
+        return new PageResponse<>(new MappedList<>(slice.getContent(), mapper), null, next, null);
+    }
+
+    private static class MappedList<S, T> extends AbstractList<T> {
+
+        private final List<S> source;
+        private final Function<? super S, ? extends T> mapper;
+
+        MappedList(List<S> source, Function<? super S, ? extends T> mapper) {
+            this.source = source;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public T get(int index) {
+            return mapper.apply(source.get(index));
+        }
+
+        @Override
+        public int size() {
+            return source.size();
+        }
+    }
+
+    static class Serializer extends StdSerializer<PageResponse<?>> {
+
+        Serializer() {
+            super(PageResponse.class, false);
+        }
+
+        @Override
+        public void serialize(PageResponse<?> page, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject();
+            gen.writeFieldName("content");
+            gen.writeStartArray();
+            // items of one page share a class, so the serializer lookup happens once per page rather than per item
+            Class<?> itemType = null;
+            JsonSerializer<Object> itemSerializer = null;
+            for (Object item : page.getContent()) {
+                if (item == null) {
+                    gen.writeNull();
+                    continue;
+                }
+                if (item.getClass() != itemType) {
+                    itemType = item.getClass();
+                    itemSerializer = provider.findValueSerializer(itemType);
+                }
+                itemSerializer.serialize(item, gen, provider);
+            }
+            gen.writeEndArray();
+            if (page.getOffset() != null) {
+                gen.writeNumberField("offset", page.getOffset());
+            }
+            if (page.getNext() != null) {
+                gen.writeStringField("next", page.getNext());
+            }
+            if (page.getTotal() != null) {
+                gen.writeNumberField("total", page.getTotal());
+            }
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.luiz.libraryapi.api.io;
+
+import com.luiz.libraryapi.api.domain.Book;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BookImportRow {
+
+    private long line;
+
+    private Book book;
+
+    private String error;
+
+    public static BookImportRow valid(long line, Book book) {
+        return new BookImportRow(line, book, null);
+    }
+
+    public static BookImportRow invalid(long line, String error) {
+        return new BookImportRow(line, null, error);
+    }
+
+    public boolean isValid() {
+        return error == null;
+    }
+}
@@ -0,0 +1,196 @@
+package com.luiz.libraryapi.api.io;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.luiz.libraryapi.api.dto.BookDTO;
+import com.luiz.libraryapi.api.mapper.BookMapper;
+import com.luiz.libraryapi.exception.BusinessException;
+import org.springframework.http.MediaType;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Reads an import body one record at a time, turning every record into a validated
+ * {@link BookImportRow}. Nothing beyond the current record is held in memory.
+ */
+public abstract class BookRowReader implements Iterator<BookImportRow> {
+
+    public static final String NDJSON_VALUE = "application/x-ndjson";
+    public static final String CSV_VALUE = "text/csv";
+
+    private final BufferedReader reader;
+    private final Validator validator;
+    private final BookMapper bookMapper;
+    private long line;
+    private BookImportRow next;
+
+    protected BookRowReader(InputStream body, Charset charset, Validator validator, BookMapper bookMapper) {
+        this.reader = new BufferedReader(new InputStreamReader(body, charset));
+        this.validator = validator;
+        this.bookMapper = bookMapper;
+    }
+
+    public static BookRowReader of(MediaType contentType, InputStream body, ObjectMapper objectMapper,
+                                   Validator validator, BookMapper bookMapper) {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        if (MediaType.valueOf(CSV_VALUE).includes(contentType)) {
+            return new Csv(body, charset, validator, bookMapper);
+        }
+        return new Ndjson(body, charset, objectMapper, validator, bookMapper);
+    }
+
+    protected abstract BookDTO parse(String record) throws Exception;
+
+    /**
+     * Whether {@code record} is a whole record or continues on the next line.
+     */
+    protected boolean isComplete(String record) {
+        return true;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            next = readNext();
+        }
+        return next != null;
+    }
+
+    @Override
+    public BookImportRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        BookImportRow row = next;
+        next = null;
+        return row;
+    }
+
+    private BookImportRow readNext() {
+        try {
+            String record;
+            while ((record = reader.readLine()) != null) {
+                long start = ++line;
+                if (record.trim().isEmpty()) {
+                    continue;
+                }
+                String continuation;
+                while (!isComplete(record) && (continuation = reader.readLine()) != null) {
+                    line++;
+                    record = record + "\n" + continuation;
+                }
+                BookDTO dto;
+                try {
+                    dto = parse(record);
+                } catch (BusinessException ex) {
+                    throw ex;
+                } catch (Exception ex) {
+                    return BookImportRow.invalid(start, "Malformed record: " + ex.getMessage());
+                }
+                if (dto == null) {
+                    continue;
+                }
+                Set<ConstraintViolation<BookDTO>> violations = validator.validate(dto);
+                if (!violations.isEmpty()) {
+                    return BookImportRow.invalid(start, violations.stream()
+                            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                            .sorted()
+                            .collect(Collectors.joining(", ")));
+                }
+                return BookImportRow.valid(start, bookMapper.toEntity(dto));
+            }
+            return null;
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static class Ndjson extends BookRowReader {
+
+        private final ObjectReader objectReader;
+
+        Ndjson(InputStream body, Charset charset, ObjectMapper objectMapper, Validator validator, BookMapper bookMapper) {
+            super(body, charset, validator, bookMapper);
+            this.objectReader = objectMapper.readerFor(BookDTO.class);
+        }
+
+        @Override
+        protected BookDTO parse(String record) throws JsonProcessingException {
+            BookDTO dto = objectReader.readValue(record);
+            // ids are assigned by the database, never taken from the file
+            dto.setId(null);
+            return dto;
+        }
+    }
+
+    static class Csv extends BookRowReader {
+
+        private int tittleColumn = -1;
+        private int authorColumn = -1;
+        private int isbnColumn = -1;
+        private boolean headerRead;
+
+        Csv(InputStream body, Charset charset, Validator validator, BookMapper bookMapper) {
+            super(body, charset, validator, bookMapper);
+        }
+
+        @Override
+        protected boolean isComplete(String record) {
+            return CsvLine.isComplete(record);
+        }
+
+        @Override
+        protected BookDTO parse(String record) {
+            List<String> fields = CsvLine.parse(record);
+            if (!headerRead) {
+                readHeader(fields);
+                return null;
+            }
+            return BookDTO.builder()
+                    .tittle(field(fields, tittleColumn))
+                    .author(field(fields, authorColumn))
+                    .isbn(field(fields, isbnColumn))
+                    .build();
+        }
+
+        private void readHeader(List<String> header) {
+            for (int i = 0; i < header.size(); i++) {
+                switch (header.get(i).toLowerCase()) {
+                    case "tittle":
+                        tittleColumn = i;
+                        break;
+                    case "author":
+                        authorColumn = i;
+                        break;
+                    case "isbn":
+                        isbnColumn = i;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (tittleColumn < 0 || authorColumn < 0 || isbnColumn < 0) {
+                throw new BusinessException("CSV header must contain tittle, author and isbn columns");
+            }
+            headerRead = true;
+        }
+
+        private static String field(List<String> fields, int column) {
+            return column < fields.size() ? fields.get(column) : null;
+        }
+    }
+}
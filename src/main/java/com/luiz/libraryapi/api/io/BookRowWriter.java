@@ -0,0 +1,109 @@
+package com.luiz.libraryapi.api.io;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.luiz.libraryapi.api.dto.BookDTO;
+import com.luiz.libraryapi.exception.BusinessException;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes books one record per line straight to the response stream.
+ */
+public abstract class BookRowWriter {
+
+    protected final Writer writer;
+
+    protected BookRowWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    public static BookRowWriter of(String format, OutputStream out, ObjectMapper objectMapper) {
+        switch (format.toLowerCase()) {
+            case "ndjson":
+                return new Ndjson(out, objectMapper);
+            case "csv":
+                return new Csv(out);
+            default:
+                throw new BusinessException("Unsupported export format: " + format);
+        }
+    }
+
+    public static String contentType(String format) {
+        return "csv".equalsIgnoreCase(format) ? BookRowReader.CSV_VALUE : BookRowReader.NDJSON_VALUE;
+    }
+
+    public abstract void write(BookDTO book);
+
+    public void flush() {
+        try {
+            writer.flush();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    static class Ndjson extends BookRowWriter {
+
+        private final ObjectWriter objectWriter;
+
+        Ndjson(OutputStream out, ObjectMapper objectMapper) {
+            super(out);
+            this.objectWriter = objectMapper.writerFor(BookDTO.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void write(BookDTO book) {
+            try {
+                objectWriter.writeValue(writer, book);
+                writer.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+
+    static class Csv extends BookRowWriter {
+
+        private boolean headerWritten;
+
+        Csv(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(BookDTO book) {
+            writeLine(String.valueOf(book.getId()), book.getTittle(), book.getAuthor(), book.getIsbn());
+        }
+
+        @Override
+        public void flush() {
+            // an empty catalog still gets its header
+            writeLine();
+            super.flush();
+        }
+
+        private void writeLine(String... fields) {
+            try {
+                if (!headerWritten) {
+                    writer.write(CsvLine.format("id", "tittle", "author", "isbn"));
+                    writer.write('\n');
+                    headerWritten = true;
+                }
+                if (fields.length > 0) {
+                    writer.write(CsvLine.format(fields));
+                    writer.write('\n');
+                }
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+    }
+}
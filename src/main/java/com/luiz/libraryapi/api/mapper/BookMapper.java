@@ -0,0 +1,26 @@
+package com.luiz.libraryapi.api.mapper;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.api.dto.BookDTO;
+
+public class BookMapper {
+
+    public BookDTO toDto(Book book) {
+        if (book == null) {
+            return null;
+        }
+        return new BookDTO(book.getId(), book.getTittle(), book.getAuthor(), book.getIsbn());
+    }
+
+    public Book toEntity(BookDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        return Book.builder()
+                .id(dto.getId())
+                .tittle(dto.getTittle())
+                .author(dto.getAuthor())
+                .isbn(dto.getIsbn())
+                .build();
+    }
+}
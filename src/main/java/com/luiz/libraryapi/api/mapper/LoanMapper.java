@@ -0,0 +1,17 @@
+package com.luiz.libraryapi.api.mapper;
+
+import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanDTO;
+
+public class LoanMapper {
+
+    public Loan toEntity(LoanDTO dto) {
+        if (dto == null) {
+            return null;
+        }
+        return Loan.builder()
+                .isbn(dto.getIsbn())
+                .customer(dto.getCustomer())
+                .build();
+    }
+}
@@ -1,23 +1,34 @@
 package com.luiz.libraryapi.api.resource;
 
 import com.luiz.libraryapi.api.domain.Book;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.luiz.libraryapi.api.dto.BookDTO;
-import com.luiz.libraryapi.api.exception.ApiErrors.ApiErrors;
-import com.luiz.libraryapi.exception.BusinessException;
+import com.luiz.libraryapi.api.dto.BookImportReport;
+import com.luiz.libraryapi.api.dto.PageResponse;
+import com.luiz.libraryapi.api.io.BookRowReader;
+import com.luiz.libraryapi.api.io.BookRowWriter;
+import com.luiz.libraryapi.api.mapper.BookMapper;
+import com.luiz.libraryapi.repository.BookKeyset;
+import com.luiz.libraryapi.service.BookExportService;
+import com.luiz.libraryapi.service.BookImportService;
 import com.luiz.libraryapi.service.BookService;
-import org.modelmapper.ModelMapper;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
+import com.luiz.libraryapi.service.concurrent.RepositoryExecutor;
+import com.luiz.libraryapi.service.metrics.MethodTimers;
+import com.luiz.libraryapi.service.metrics.StageTimers;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.validation.BindingResult;
-import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
-import java.util.List;
-import java.util.stream.Collectors;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 
 @RestController
@@ -25,53 +36,124 @@ import java.util.stream.Collectors;
 public class BookController {
 
     private BookService bookService;
-    private ModelMapper modelMapper;
+    private BookMapper bookMapper;
+    private BookImportService bookImportService;
+    private BookExportService bookExportService;
+    private ObjectMapper objectMapper;
+    private Validator validator;
+    private RepositoryExecutor repositoryExecutor;
+    private MethodTimers createTimers;
+    private MethodTimers getTimers;
+    private MethodTimers updateTimers;
+    private MethodTimers findTimers;
+    private MethodTimers findByCursorTimers;
 
-    public BookController(BookService bookService, ModelMapper modelMapper) {
+    public BookController(BookService bookService, BookMapper bookMapper, BookImportService bookImportService,
+                          BookExportService bookExportService, ObjectMapper objectMapper, Validator validator,
+                          RepositoryExecutor repositoryExecutor, StageTimers stageTimers) {
         this.bookService = bookService;
-        this.modelMapper = modelMapper;
+        this.bookMapper = bookMapper;
+        this.bookImportService = bookImportService;
+        this.bookExportService = bookExportService;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.repositoryExecutor = repositoryExecutor;
+        this.createTimers = stageTimers.forMethod("BookController.create");
+        this.getTimers = stageTimers.forMethod("BookController.get");
+        this.updateTimers = stageTimers.forMethod("BookController.update");
+        this.findTimers = stageTimers.forMethod("BookController.find");
+        this.findByCursorTimers = stageTimers.forMethod("BookController.findByCursor");
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public BookDTO create(@Valid @RequestBody BookDTO bookDto) {
-        Book entity = modelMapper.map(bookDto, Book.class);
-        entity = bookService.save(entity);
-        return modelMapper.map(entity, BookDTO.class);
+    public CompletableFuture<BookDTO> create(@Valid @RequestBody BookDTO bookDto) {
+        Book entity = createTimers.mapping(() -> bookMapper.toEntity(bookDto));
+        return repositoryExecutor.submit(() -> bookService.save(entity))
+                .thenApply(saved -> createTimers.mapping(() -> bookMapper.toDto(saved)));
     }
 
 
+    @PostMapping(value = "batch", consumes = {BookRowReader.NDJSON_VALUE, BookRowReader.CSV_VALUE})
+    public BookImportReport importBooks(@RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        return bookImportService.importBooks(BookRowReader.of(contentType, body, objectMapper, validator, bookMapper));
+    }
+
+    @GetMapping("export")
+    public void exportBooks(@RequestParam(defaultValue = "ndjson") String format, HttpServletResponse response) throws IOException {
+        BookRowWriter writer = BookRowWriter.of(format, response.getOutputStream(), objectMapper);
+        response.setContentType(BookRowWriter.contentType(format));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=books." + format.toLowerCase());
+        bookExportService.exportBooks(book -> writer.write(bookMapper.toDto(book)));
+        writer.flush();
+    }
+
     @GetMapping("{id}")
-    public BookDTO get(@PathVariable Long id) {
-        return bookService.getById(id)
-                .map(book -> modelMapper.map(book, BookDTO.class))
-                .orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
+    public CompletableFuture<ResponseEntity<BookDTO>> get(@PathVariable Long id,
+                                                         @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                         @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String representation = ETags.representation(accept);
+        return repositoryExecutor.submit(() -> bookService.getById(id)
+                .map(book -> {
+                    String etag = ETags.of(book, representation);
+                    if (ETags.noneMatch(ifNoneMatch, etag)) {
+                        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).<BookDTO>build();
+                    }
+                    return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(getTimers.mapping(() -> bookMapper.toDto(book)));
+                })
+                .orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND))));
     }
 
     @DeleteMapping("{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public void delete(@PathVariable Long id) {
-        Book book = bookService.getById(id)
-                .orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
-        bookService.delete(book);
+    public CompletableFuture<Void> delete(@PathVariable Long id) {
+        return repositoryExecutor.run(() -> {
+            Book book = bookService.getById(id)
+                    .orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
+            bookService.delete(book);
+        });
     }
 
     @PutMapping("{id}")
-    public BookDTO update(@PathVariable Long id, BookDTO bookDto) {
-        return bookService.getById(id).map(book -> {
+    public CompletableFuture<ResponseEntity<BookDTO>> update(@PathVariable Long id, BookDTO bookDto,
+                                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String representation = ETags.representation(accept);
+        return repositoryExecutor.submit(() -> bookService.getById(id).map(book -> {
+            // the loaded version travels with the entity, so a write that lands after this check still fails the version check
+            if (!ETags.match(ifMatch, book)) {
+                throw new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, "Book was modified");
+            }
             book.setAuthor(bookDto.getAuthor());
             book.setTittle(bookDto.getAuthor());
-            bookService.update(book);
-            return modelMapper.map(book, BookDTO.class);
-        }).orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND)));
+            Book updated = bookService.update(book);
+            return ResponseEntity.ok().eTag(ETags.of(updated, representation)).varyBy(HttpHeaders.ACCEPT).body(updateTimers.mapping(() -> bookMapper.toDto(updated)));
+        }).orElseThrow(() -> new ResponseStatusException((HttpStatus.NOT_FOUND))));
 
     }
 
     @GetMapping()
-    public Page<BookDTO> find(BookDTO dto, Pageable pageRequest) {
-        Book filter = modelMapper.map(dto, Book.class);
-        Page<Book> result = bookService.find(filter, pageRequest);
-        List<BookDTO> list = result.getContent().stream().map(entity -> modelMapper.map(entity, BookDTO.class)).collect(Collectors.toList());
-        return new PageImpl<BookDTO>(list, pageRequest, result.getTotalElements());
+    public CompletableFuture<ResponseEntity<PageResponse<BookDTO>>> find(BookDTO dto, Pageable pageRequest,
+                                                                 @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        Book filter = findTimers.mapping(() -> bookMapper.toEntity(dto));
+        String representation = ETags.representation(accept);
+        return repositoryExecutor.submit(() -> bookService.find(filter, pageRequest)).thenApply(result -> {
+            String etag = ETags.of(result, representation);
+            if (ETags.noneMatch(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).varyBy(HttpHeaders.ACCEPT).build();
+            }
+            return ResponseEntity.ok().eTag(etag).varyBy(HttpHeaders.ACCEPT).body(PageResponse.of(result, findTimers.mapping(bookMapper::toDto)));
+        });
+    }
+
+    @GetMapping(params = "cursor")
+    public CompletableFuture<PageResponse<BookDTO>> findByCursor(BookDTO dto, @RequestParam String cursor, Pageable pageRequest) {
+        Book filter = findByCursorTimers.mapping(() -> bookMapper.toEntity(dto));
+        BookKeyset keyset = cursor.isEmpty() ? BookKeyset.first(pageRequest.getSort()) : BookKeyset.decode(cursor);
+        return repositoryExecutor.submit(() -> bookService.findAfter(filter, keyset, pageRequest.getPageSize())).thenApply(result -> {
+            String next = result.hasNext() ? keyset.after(result.getContent().get(result.getNumberOfElements() - 1)).encode() : null;
+            return PageResponse.of(result, findByCursorTimers.mapping(bookMapper::toDto), next);
+        });
     }
 }
@@ -0,0 +1,133 @@
+package com.luiz.libraryapi.api.resource;
+
+import com.luiz.libraryapi.api.domain.Book;
+import org.springframework.data.domain.Page;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entity tags derived from book ids and versions, so a conditional request can be answered
+ * before anything is mapped or serialized. Each tag names the representation negotiated from the
+ * Accept header, and responses carry {@code Vary: Accept}, so a cache never hands CBOR bytes to a
+ * client validating JSON. The tags are weak: gzip changes the bytes but not the state, and Tomcat
+ * leaves responses with strong tags uncompressed.
+ */
+final class ETags {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // in the order the message converters are tried, JSON first
+    private static final List<MediaType> REPRESENTATIONS = Arrays.asList(
+            MediaType.APPLICATION_JSON,
+            MediaType.valueOf("application/cbor"),
+            MediaType.valueOf("application/x-jackson-smile"));
+    private static final String[] SUFFIXES = {"json", "cbor", "smile"};
+
+    private ETags() {
+    }
+
+    /**
+     * Short name of the representation a request with this Accept header is answered with.
+     */
+    static String representation(String accept) {
+        if (accept == null) {
+            return SUFFIXES[0];
+        }
+        List<MediaType> acceptable;
+        try {
+            acceptable = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException ex) {
+            return SUFFIXES[0];
+        }
+        MediaType.sortBySpecificityAndQuality(acceptable);
+        for (MediaType type : acceptable) {
+            for (int i = 0; i < REPRESENTATIONS.size(); i++) {
+                if (type.isCompatibleWith(REPRESENTATIONS.get(i))) {
+                    return SUFFIXES[i];
+                }
+            }
+        }
+        return SUFFIXES[0];
+    }
+
+    static String of(Book book, String representation) {
+        return weak(book.getId() + "-" + book.getVersion(), representation);
+    }
+
+    static String of(Page<Book> page, String representation) {
+        // 64-bit FNV-1a over the page position and every (id, version) pair on it
+        long hash = mix(FNV_OFFSET, page.getNumber());
+        hash = mix(hash, page.getSize());
+        hash = mix(hash, page.getTotalElements());
+        for (Book book : page.getContent()) {
+            hash = mix(hash, book.getId() == null ? 0 : book.getId());
+            hash = mix(hash, book.getVersion() == null ? -1 : book.getVersion());
+        }
+        return weak("p" + Long.toHexString(hash), representation);
+    }
+
+    /**
+     * If-None-Match uses the weak comparison, so the representation has to match too.
+     */
+    static boolean noneMatch(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*") || opaque(tag).equals(opaque)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * If-Match compares the book version only: the tag is weak for the sake of compression, not
+     * because two states share it, and a write does not depend on the format the book was read in.
+     * A missing header imposes no precondition.
+     */
+    static boolean match(String ifMatch, Book book) {
+        if (ifMatch == null) {
+            return true;
+        }
+        String version = book.getId() + "-" + book.getVersion();
+        for (String tag : ifMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            String opaque = opaque(tag);
+            int dot = opaque.lastIndexOf('.');
+            if ((dot < 0 ? opaque : opaque.substring(0, dot)).equals(version)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String weak(String value, String representation) {
+        return "W/\"" + value + "." + representation + "\"";
+    }
+
+    private static String opaque(String tag) {
+        String opaque = tag.startsWith("W/") ? tag.substring(2) : tag;
+        if (opaque.length() >= 2 && opaque.startsWith("\"") && opaque.endsWith("\"")) {
+            return opaque.substring(1, opaque.length() - 1);
+        }
+        return opaque;
+    }
+
+    private static long mix(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
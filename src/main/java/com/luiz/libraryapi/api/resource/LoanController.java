@@ -3,36 +3,98 @@ package com.luiz.libraryapi.api.resource;
 import com.luiz.libraryapi.api.domain.Book;
 import com.luiz.libraryapi.api.domain.Loan;
 import com.luiz.libraryapi.api.dto.LoanDTO;
+import com.luiz.libraryapi.api.dto.LoanFilterDTO;
+import com.luiz.libraryapi.api.dto.LoanReturnDTO;
+import com.luiz.libraryapi.api.dto.LoanReturnReport;
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import com.luiz.libraryapi.api.mapper.LoanMapper;
 import com.luiz.libraryapi.service.BookService;
 import com.luiz.libraryapi.service.LoanService;
-import lombok.RequiredArgsConstructor;
+import com.luiz.libraryapi.service.OverdueLoanService;
+import com.luiz.libraryapi.service.concurrent.AdmissionControl;
+import com.luiz.libraryapi.service.concurrent.RepositoryExecutor;
+import com.luiz.libraryapi.service.metrics.MethodTimers;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api/loan")
-@RequiredArgsConstructor
 public class LoanController {
 
     private final LoanService loanService;
     private final BookService bookService;
+    private final LoanMapper loanMapper;
+    private final OverdueLoanService overdueLoanService;
+    private final RepositoryExecutor repositoryExecutor;
+    private final AdmissionControl admissionControl;
+    private final MethodTimers createTimers;
+
+    public LoanController(LoanService loanService, BookService bookService, LoanMapper loanMapper,
+                          OverdueLoanService overdueLoanService, RepositoryExecutor repositoryExecutor,
+                          AdmissionControl admissionControl, StageTimers stageTimers) {
+        this.loanService = loanService;
+        this.bookService = bookService;
+        this.loanMapper = loanMapper;
+        this.overdueLoanService = overdueLoanService;
+        this.repositoryExecutor = repositoryExecutor;
+        this.admissionControl = admissionControl;
+        this.createTimers = stageTimers.forMethod("LoanController.create");
+    }
 
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Long create(@RequestBody LoanDTO loanDTO) {
-        Book book = bookService.getBookByIsbn(loanDTO.getIsbn())
-                .orElseThrow(() ->  new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
-        Loan entity = Loan.builder()
-                .book(book)
-                .customer(loanDTO.getCustomer())
-                .loanDate(LocalDate.now())
-                .build();
-        entity = loanService.save(entity);
-
-        return entity.getId();
+    public CompletableFuture<Long> create(@RequestBody LoanDTO loanDTO) {
+        admissionControl.acquire(loanDTO.getCustomer());
+        CompletableFuture<Long> created;
+        try {
+            created = repositoryExecutor.submit(() -> {
+                Book book = bookService.getBookByIsbn(loanDTO.getIsbn())
+                        .orElseThrow(() ->  new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn"));
+                Loan entity = createTimers.mapping(() -> loanMapper.toEntity(loanDTO));
+                entity.setBook(book);
+                entity.setLoanDate(LocalDate.now());
+                entity = loanService.save(entity);
+
+                return entity.getId();
+            });
+        } catch (RuntimeException e) {
+            admissionControl.release();
+            throw e;
+        }
+        return created.whenComplete((id, ex) -> admissionControl.release());
+    }
+
+    @GetMapping
+    public CompletableFuture<Page<LoanSummaryDTO>> find(LoanFilterDTO filter, Pageable pageRequest) {
+        return repositoryExecutor.submit(() -> loanService.find(filter, pageRequest));
+    }
+
+    @PatchMapping("returns")
+    public CompletableFuture<LoanReturnReport> returnLoans(@RequestBody LoanReturnDTO dto) {
+        List<Long> ids = dto.getIds() == null ? Collections.emptyList() : dto.getIds();
+        List<String> isbns = dto.getIsbns() == null ? Collections.emptyList() : dto.getIsbns();
+        if (ids.isEmpty() && isbns.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Inform loan ids or isbns to return");
+        }
+        return repositoryExecutor.submit(() -> {
+            LoanReturnReport report = loanService.returnLoans(ids, isbns);
+            overdueLoanService.remove(report.returnedLoanIds());
+            return report;
+        });
+    }
+
+    @GetMapping("overdue")
+    public Page<LoanSummaryDTO> findOverdue(Pageable pageRequest) {
+        return overdueLoanService.find(pageRequest);
     }
 }
@@ -0,0 +1,35 @@
+package com.luiz.libraryapi.config;
+
+import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.repository.LoanRepository;
+import com.luiz.libraryapi.service.concurrent.GroupCommitter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Optional group-commit write path for loans ({@code library.loan.group-commit.enabled=true}).
+ * Concurrent loan inserts are batched into one transaction instead of one commit each. The batch
+ * is counted in the active-loan counters by each caller once its own future completes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.loan.group-commit.enabled", havingValue = "true")
+public class LoanGroupCommitConfig {
+
+    @Bean(destroyMethod = "close")
+    public GroupCommitter<Loan> loanGroupCommitter(LoanRepository loanRepository,
+                                                   PlatformTransactionManager transactionManager,
+                                                   MeterRegistry meterRegistry,
+                                                   @Value("${library.loan.group-commit.max-batch:64}") int maxBatch,
+                                                   @Value("${library.loan.group-commit.window:2ms}") Duration window) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return new GroupCommitter<>("loan", maxBatch, window,
+                loans -> transactionTemplate.execute(status -> loanRepository.saveAll(loans)), meterRegistry);
+    }
+}
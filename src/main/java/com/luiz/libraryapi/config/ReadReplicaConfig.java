@@ -0,0 +1,89 @@
+package com.luiz.libraryapi.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+
+/**
+ * Optional read replica ({@code library.datasource.replica.enabled=true}, with an explicit
+ * {@code library.datasource.replica.jdbc-url} that differs from the primary's). Read-only transactions,
+ * such as the {@code BookService} lookups, run on the replica pool; writes stay on the primary pool
+ * configured under {@code spring.datasource}. Both pools live inside the one {@code dataSource} bean,
+ * because separate DataSource beans would be picked up by the schema initializer while the router is still being built.
+ */
+@Configuration
+@ConditionalOnProperty(name = "library.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariConfig primaryPoolConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean
+    @ConfigurationProperties("library.datasource.replica")
+    public HikariConfig replicaPoolConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean(destroyMethod = "close")
+    public RoutingDataSourceProxy dataSource(DataSourceProperties properties,
+                                             HikariConfig primaryPoolConfig,
+                                             HikariConfig replicaPoolConfig,
+                                             ObjectProvider<MeterRegistry> meterRegistry,
+                                             @Value("${library.datasource.replica.retry-interval:10s}") Duration retryInterval) {
+        String primaryUrl = properties.determineUrl();
+        String replicaUrl = replicaPoolConfig.getJdbcUrl();
+        if (replicaUrl == null || replicaUrl.trim().isEmpty()) {
+            throw new IllegalStateException("library.datasource.replica.jdbc-url must be set when the read replica is enabled");
+        }
+        if (replicaUrl.equals(primaryUrl)) {
+            throw new IllegalStateException("library.datasource.replica.jdbc-url points at the primary database");
+        }
+        HikariDataSource primary = new HikariDataSource();
+        primaryPoolConfig.copyStateTo(primary);
+        primary.setJdbcUrl(primaryUrl);
+        primary.setUsername(properties.determineUsername());
+        primary.setPassword(properties.determinePassword());
+        primary.setDriverClassName(properties.determineDriverClassName());
+        HikariDataSource replica = new HikariDataSource();
+        replicaPoolConfig.copyStateTo(replica);
+        meterRegistry.ifAvailable(registry -> {
+            primary.setMetricRegistry(registry);
+            replica.setMetricRegistry(registry);
+        });
+        return new RoutingDataSourceProxy(new ReadWriteRoutingDataSource(primary, replica, retryInterval));
+    }
+
+    /**
+     * Defers fetching the connection until the first statement, so the router sees the transaction's read-only flag.
+     */
+    public static class RoutingDataSourceProxy extends LazyConnectionDataSourceProxy implements Closeable {
+
+        RoutingDataSourceProxy(ReadWriteRoutingDataSource router) {
+            super(router);
+        }
+
+        public ReadWriteRoutingDataSource getRouter() {
+            return (ReadWriteRoutingDataSource) obtainTargetDataSource();
+        }
+
+        @Override
+        public void close() throws IOException {
+            getRouter().close();
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.luiz.libraryapi.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the background jobs, such as the overdue-loan scanner. Disable with
+ * {@code library.scheduling.enabled=false} to trigger them by hand.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "library.scheduling.enabled", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -0,0 +1,58 @@
+package com.luiz.libraryapi.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import com.luiz.libraryapi.api.domain.Book;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.JCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+import java.time.Duration;
+import java.util.OptionalLong;
+
+/**
+ * Hibernate second-level cache for {@link Book}, backed by a bounded Caffeine JCache region.
+ * The region is created here, before Hibernate boots, so its size and TTL come from
+ * application.yml and its hit, miss and eviction counts can be bound to actuator metrics.
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    static final String BOOK_REGION = Book.class.getName();
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager(@Value("${library.cache.book.maximum-size:10000}") long maximumSize,
+                                              @Value("${library.cache.book.time-to-live:10m}") Duration timeToLive) {
+        CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        CacheManager cacheManager = provider.getCacheManager(provider.getDefaultURI(), getClass().getClassLoader());
+        if (cacheManager.getCache(BOOK_REGION) == null) {
+            CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+            configuration.setMaximumSize(OptionalLong.of(maximumSize));
+            configuration.setExpireAfterWrite(OptionalLong.of(timeToLive.toNanos()));
+            configuration.setStatisticsEnabled(true);
+            cacheManager.createCache(BOOK_REGION, configuration);
+        }
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+
+    @Bean
+    public MeterBinder bookCacheMetrics(CacheManager hibernateCacheManager) {
+        return registry -> {
+            Cache<Object, Object> cache = hibernateCacheManager.getCache(BOOK_REGION);
+            JCacheMetrics.monitor(registry, cache);
+        };
+    }
+}
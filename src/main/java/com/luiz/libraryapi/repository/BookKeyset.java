@@ -0,0 +1,86 @@
+package com.luiz.libraryapi.repository;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.exception.BusinessException;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Seek position for keyset pagination: the sort key and id of the last book handed out.
+ * Clients only ever see it as the opaque token produced by {@link #encode()}. A null sort key
+ * ranks below every other value and is encoded by leaving the value part out of the token.
+ */
+@Data
+@AllArgsConstructor
+public class BookKeyset {
+
+    static final String ID = "id";
+    private static final List<String> SORT_KEYS = Arrays.asList(ID, "tittle", "author", "isbn");
+
+    private String property;
+
+    private Sort.Direction direction;
+
+    private String lastValue;
+
+    private Long lastId;
+
+    public static BookKeyset first(Sort sort) {
+        return sort.stream()
+                .filter(order -> SORT_KEYS.contains(order.getProperty()))
+                .findFirst()
+                .map(order -> new BookKeyset(order.getProperty(), order.getDirection(), null, null))
+                .orElseGet(() -> new BookKeyset(ID, Sort.Direction.ASC, null, null));
+    }
+
+    public static BookKeyset decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(":", 4);
+            if (parts.length < 3 || !SORT_KEYS.contains(parts[0])) {
+                throw new IllegalArgumentException(decoded);
+            }
+            String lastValue = parts.length == 4 ? parts[3] : null;
+            return new BookKeyset(parts[0], Sort.Direction.fromString(parts[1]), lastValue, Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException ex) {
+            throw new BusinessException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String raw = property + ":" + direction.name() + ":" + lastId + (lastValue == null ? "" : ":" + lastValue);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public BookKeyset after(Book last) {
+        return new BookKeyset(property, direction, sortKey().apply(last), last.getId());
+    }
+
+    public boolean isFirst() {
+        return lastId == null;
+    }
+
+    public boolean isById() {
+        return ID.equals(property);
+    }
+
+    private Function<Book, String> sortKey() {
+        switch (property) {
+            case "tittle":
+                return Book::getTittle;
+            case "author":
+                return Book::getAuthor;
+            case "isbn":
+                return Book::getIsbn;
+            default:
+                return book -> null;
+        }
+    }
+}
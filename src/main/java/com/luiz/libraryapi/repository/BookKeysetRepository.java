@@ -0,0 +1,11 @@
+package com.luiz.libraryapi.repository;
+
+import com.luiz.libraryapi.api.domain.Book;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface BookKeysetRepository {
+
+    List<Book> findPage(Book filter, Collection<Long> ids, BookKeyset keyset, int limit);
+}
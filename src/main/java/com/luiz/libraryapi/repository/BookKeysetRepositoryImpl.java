@@ -0,0 +1,86 @@
+package com.luiz.libraryapi.repository;
+
+import com.luiz.libraryapi.api.domain.Book;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class BookKeysetRepositoryImpl implements BookKeysetRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Book> findPage(Book filter, Collection<Long> ids, BookKeyset keyset, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (ids != null) {
+            predicates.add(root.get(BookKeyset.ID).in(ids));
+        }
+        if (filter.getId() != null) {
+            predicates.add(cb.equal(root.get(BookKeyset.ID), filter.getId()));
+        }
+        addContains(cb, root.get("tittle"), filter.getTittle(), predicates);
+        addContains(cb, root.get("author"), filter.getAuthor(), predicates);
+        addContains(cb, root.get("isbn"), filter.getIsbn(), predicates);
+
+        boolean ascending = keyset.getDirection().isAscending();
+        Path<Long> id = root.get(BookKeyset.ID);
+        if (!keyset.isFirst()) {
+            Predicate afterId = ascending ? cb.gt(id, keyset.getLastId()) : cb.lt(id, keyset.getLastId());
+            if (keyset.isById()) {
+                predicates.add(afterId);
+            } else {
+                predicates.add(afterKey(cb, root.get(keyset.getProperty()), keyset.getLastValue(), ascending, afterId));
+            }
+        }
+
+        query.select(root).where(predicates.toArray(new Predicate[0]));
+        if (keyset.isById()) {
+            query.orderBy(ascending ? cb.asc(id) : cb.desc(id));
+        } else {
+            // nulls rank below every value whatever the database's default null ordering is
+            Path<String> key = root.get(keyset.getProperty());
+            Expression<Integer> present = cb.<Integer>selectCase().when(cb.isNull(key), 0).otherwise(1);
+            query.orderBy(ascending ? cb.asc(present) : cb.desc(present),
+                    ascending ? cb.asc(key) : cb.desc(key),
+                    ascending ? cb.asc(id) : cb.desc(id));
+        }
+        return entityManager.createQuery(query).setMaxResults(limit).getResultList();
+    }
+
+    private Predicate afterKey(CriteriaBuilder cb, Path<String> key, String value, boolean ascending, Predicate afterId) {
+        if (value == null) {
+            // ascending, the null rows come first and every non-null row follows them; descending, they close the listing
+            Predicate nullsAfterId = cb.and(cb.isNull(key), afterId);
+            return ascending ? cb.or(nullsAfterId, cb.isNotNull(key)) : nullsAfterId;
+        }
+        Predicate after = cb.or(
+                ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value),
+                cb.and(cb.equal(key, value), afterId));
+        return ascending ? after : cb.or(after, cb.isNull(key));
+    }
+
+    private void addContains(CriteriaBuilder cb, Path<String> path, String value, List<Predicate> predicates) {
+        if (value == null) {
+            return;
+        }
+        String escaped = value.toLowerCase()
+                .replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        predicates.add(cb.like(cb.lower(path), "%" + escaped + "%", '\\'));
+    }
+}
@@ -2,9 +2,56 @@ package com.luiz.libraryapi.repository;
 
 import com.luiz.libraryapi.api.domain.Book;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 @Repository
-public interface BookRepository extends JpaRepository<Book, Long> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookKeysetRepository {
     boolean existsByIsbn(String isbn);
+
+    @Transactional(readOnly = true)
+    Optional<Book> findByIsbn(String isbn);
+
+    @Query("select b.isbn from Book b where b.isbn in :isbns")
+    Set<String> findExistingIsbns(@Param("isbns") Collection<String> isbns);
+
+    @Query("select b.id as id, b.isbn as isbn, b.tittle as tittle, b.author as author from Book b")
+    List<IndexEntry> findAllIndexEntries();
+
+    // unlike count(), not read-only, so it runs on the primary like findAllIndexEntries
+    @Query("select count(b) from Book b")
+    long countIndexEntries();
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true"),
+            @QueryHint(name = HINT_CACHEABLE, value = "false")
+    })
+    @Query("select b from Book b order by b.id")
+    Stream<Book> streamAll();
+
+    interface IndexEntry {
+        Long getId();
+
+        String getIsbn();
+
+        String getTittle();
+
+        String getAuthor();
+    }
 }
@@ -1,7 +1,79 @@
 package com.luiz.libraryapi.repository;
 
 import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
-public interface LoanRepository extends JpaRepository<Loan, Long> {
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+public interface LoanRepository extends JpaRepository<Loan, Long>, LoanReturnRepository {
+
+    boolean existsByIsbnAndReturnedFalse(String isbn);
+
+    long countByCustomerAndReturnedFalse(String customer);
+
+    // reads only the listed columns, joining the book in the same statement instead of loading it per loan
+    @Query(value = "select new com.luiz.libraryapi.api.dto.LoanSummaryDTO(l.id, l.customer, l.isbn, l.loanDate, l.returned, b.id, b.tittle) " +
+            "from Loan l left join l.book b " +
+            "where (:customer is null or lower(l.customer) = lower(:customer)) " +
+            "and (:isbn is null or l.isbn = :isbn) " +
+            "and (:returned is null or l.returned = :returned)",
+            countQuery = "select count(l) from Loan l " +
+                    "where (:customer is null or lower(l.customer) = lower(:customer)) " +
+                    "and (:isbn is null or l.isbn = :isbn) " +
+                    "and (:returned is null or l.returned = :returned)")
+    Page<LoanSummaryDTO> findSummaries(@Param("customer") String customer, @Param("isbn") String isbn,
+                                       @Param("returned") Boolean returned, Pageable pageable);
+
+    // keyset over (loanDate, id) on the (returned, loanDate, id) index: only rows past the mark are read
+    @Query("select new com.luiz.libraryapi.api.dto.LoanSummaryDTO(l.id, l.customer, l.isbn, l.loanDate, l.returned, b.id, b.tittle) " +
+            "from Loan l left join l.book b " +
+            "where l.returned = false and l.loanDate < :cutoff " +
+            "and (l.loanDate > :lastLoanDate or (l.loanDate = :lastLoanDate and l.id > :lastId)) " +
+            "order by l.loanDate, l.id")
+    List<LoanSummaryDTO> findOverdueAfter(@Param("cutoff") LocalDate cutoff, @Param("lastLoanDate") LocalDate lastLoanDate,
+                                          @Param("lastId") Long lastId, Pageable pageable);
+
+    @Query("select l.id as id, l.isbn as isbn, l.customer as customer, l.returned as returned from Loan l where l.id in :ids")
+    List<ReturnState> findReturnStates(@Param("ids") Collection<Long> ids);
+
+    @Query("select l.id as id, l.isbn as isbn, l.customer as customer, l.returned as returned from Loan l " +
+            "where l.isbn in :isbns and l.returned = false")
+    List<ReturnState> findActiveReturnStates(@Param("isbns") Collection<String> isbns);
+
+    interface ReturnState {
+        Long getId();
+
+        String getIsbn();
+
+        String getCustomer();
+
+        Boolean getReturned();
+    }
+
+    @Query("select l.isbn as name, count(l) as total from Loan l where l.returned = false group by l.isbn")
+    List<ActiveCount> countActiveByIsbn();
+
+    @Query("select l.customer as name, count(l) as total from Loan l " +
+            "where l.returned = false and l.customer is not null group by l.customer")
+    List<ActiveCount> countActiveByCustomer();
+
+    @Query("select l.isbn as name, count(l) as total from Loan l where l.returned = false and l.isbn in :isbns group by l.isbn")
+    List<ActiveCount> countActiveByIsbn(@Param("isbns") Collection<String> isbns);
+
+    @Query("select l.customer as name, count(l) as total from Loan l " +
+            "where l.returned = false and l.customer in :customers group by l.customer")
+    List<ActiveCount> countActiveByCustomer(@Param("customers") Collection<String> customers);
+
+    interface ActiveCount {
+        String getName();
+
+        Long getTotal();
+    }
 }
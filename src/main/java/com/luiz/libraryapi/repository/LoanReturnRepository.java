@@ -0,0 +1,14 @@
+package com.luiz.libraryapi.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface LoanReturnRepository {
+
+    /**
+     * Marks the loans that are still active as returned, in one transaction.
+     *
+     * @return the ids this call changed; loans already returned, or returned concurrently, are left out
+     */
+    List<Long> markReturned(Collection<Long> ids);
+}
@@ -0,0 +1,31 @@
+package com.luiz.libraryapi.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+public class LoanReturnRepositoryImpl implements LoanReturnRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public List<Long> markReturned(Collection<Long> ids) {
+        // one guarded update per id: its row count says whether this call did the return, so two
+        // concurrent returns of the same loan cannot both count it
+        Query update = entityManager.createQuery("update Loan l set l.returned = true where l.id = :id and l.returned = false");
+        List<Long> returned = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            if (update.setParameter("id", id).executeUpdate() == 1) {
+                returned.add(id);
+            }
+        }
+        return returned;
+    }
+}
@@ -0,0 +1,10 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.domain.Book;
+
+import java.util.function.Consumer;
+
+public interface BookExportService {
+
+    void exportBooks(Consumer<Book> sink);
+}
@@ -0,0 +1,11 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.dto.BookImportReport;
+import com.luiz.libraryapi.api.io.BookImportRow;
+
+import java.util.Iterator;
+
+public interface BookImportService {
+
+    BookImportReport importBooks(Iterator<BookImportRow> rows);
+}
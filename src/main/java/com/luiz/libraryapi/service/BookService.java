@@ -2,8 +2,10 @@ package com.luiz.libraryapi.service;
 
 
 import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.repository.BookKeyset;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
@@ -20,5 +22,7 @@ public interface BookService {
 
     Page<Book> find(Book filter, Pageable pageRequest);
 
+    Slice<Book> findAfter(Book filter, BookKeyset keyset, int size);
+
     Optional<Book> getBookByIsbn(String s);
 }
@@ -1,8 +1,23 @@
 package com.luiz.libraryapi.service;
 
 import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanFilterDTO;
+import com.luiz.libraryapi.api.dto.LoanReturnReport;
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
 
 public interface LoanService {
 
     Loan save(Loan any);
+
+    Page<LoanSummaryDTO> find(LoanFilterDTO filter, Pageable pageRequest);
+
+    LoanReturnReport returnLoans(Collection<Long> ids, Collection<String> isbns);
+
+    boolean isAvailable(String isbn);
+
+    long countActiveLoans(String customer);
 }
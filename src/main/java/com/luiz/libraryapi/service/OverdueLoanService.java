@@ -0,0 +1,16 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.util.Collection;
+
+public interface OverdueLoanService {
+
+    int scan();
+
+    Page<LoanSummaryDTO> find(Pageable pageRequest);
+
+    void remove(Collection<Long> loanIds);
+}
@@ -0,0 +1,164 @@
+package com.luiz.libraryapi.service.concurrent;
+
+import com.luiz.libraryapi.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Admission check for loan creation: a token bucket per customer plus a cap on requests in flight.
+ * Each bucket is a single {@link AtomicLong} holding its theoretical arrival time (GCRA), so taking
+ * a token is one CAS and never blocks. A bucket whose arrival time has passed is full, and removing
+ * it loses nothing, so idle customers are swept out and the table stays under {@code max-customers}.
+ * When every tracked customer is still throttled, the bucket closest to refilling makes room for the
+ * newcomer, so a full table never turns away customers it has not seen yet.
+ */
+@Component
+public class AdmissionControl {
+
+    public static final String METRIC_NAME = "library.admission.rejected";
+
+    private final boolean enabled;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxConcurrent;
+    private final int maxCustomers;
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rateRejections;
+    private final Counter concurrencyRejections;
+
+    @Autowired
+    public AdmissionControl(@Value("${library.admission.enabled:true}") boolean enabled,
+                            @Value("${library.admission.rate-per-second:20}") double ratePerSecond,
+                            @Value("${library.admission.burst:40}") int burst,
+                            @Value("${library.admission.max-concurrent:256}") int maxConcurrent,
+                            @Value("${library.admission.max-customers:100000}") int maxCustomers,
+                            MeterRegistry meterRegistry) {
+        this(enabled, ratePerSecond, burst, maxConcurrent, maxCustomers, meterRegistry, System::nanoTime);
+    }
+
+    AdmissionControl(boolean enabled, double ratePerSecond, int burst, int maxConcurrent, int maxCustomers,
+                     MeterRegistry meterRegistry, LongSupplier clock) {
+        this.enabled = enabled;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.maxConcurrent = maxConcurrent;
+        this.maxCustomers = maxCustomers;
+        this.clock = clock;
+        this.rateRejections = Counter.builder(METRIC_NAME).tag("reason", "rate").register(meterRegistry);
+        this.concurrencyRejections = Counter.builder(METRIC_NAME).tag("reason", "concurrency").register(meterRegistry);
+        Gauge.builder("library.admission.customers", buckets, ConcurrentMap::size).register(meterRegistry);
+        Gauge.builder("library.admission.in_flight", inFlight, AtomicInteger::get).register(meterRegistry);
+    }
+
+    /**
+     * Admits one request for the customer, to be paired with {@link #release()} once it completes.
+     *
+     * @throws TooManyRequestsException when the server is at its concurrency cap or the customer is out of tokens
+     */
+    public void acquire(String customer) {
+        if (!enabled) {
+            return;
+        }
+        if (inFlight.incrementAndGet() > maxConcurrent) {
+            inFlight.decrementAndGet();
+            concurrencyRejections.increment();
+            throw new TooManyRequestsException("Too many loan requests in progress, try again later", 1);
+        }
+        long now = clock.getAsLong();
+        long wait = bucket(customer == null ? "" : customer, now).tryAcquire(now, intervalNanos, toleranceNanos);
+        if (wait > 0) {
+            inFlight.decrementAndGet();
+            rateRejections.increment();
+            throw new TooManyRequestsException("Too many loan requests for this customer, try again later",
+                    Math.max(1, TimeUnit.NANOSECONDS.toSeconds(wait + TimeUnit.SECONDS.toNanos(1) - 1)));
+        }
+    }
+
+    public void release() {
+        if (enabled) {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${library.admission.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        long now = clock.getAsLong();
+        buckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    int customers() {
+        return buckets.size();
+    }
+
+    private Bucket bucket(String customer, long now) {
+        Bucket bucket = buckets.get(customer);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxCustomers) {
+            makeRoom(now);
+        }
+        return buckets.computeIfAbsent(customer, key -> new Bucket(now));
+    }
+
+    private void makeRoom(long now) {
+        // one pass drops the full buckets and finds the one with the earliest arrival time, which is
+        // evicted when nothing was idle; forgetting it forgives the least owed time
+        Map.Entry<String, Bucket> oldest = null;
+        for (Iterator<Map.Entry<String, Bucket>> it = buckets.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Bucket> entry = it.next();
+            if (entry.getValue().isFull(now)) {
+                it.remove();
+            } else if (oldest == null || entry.getValue().get() - oldest.getValue().get() < 0) {
+                oldest = entry;
+            }
+        }
+        if (oldest != null && buckets.size() >= maxCustomers) {
+            buckets.remove(oldest.getKey(), oldest.getValue());
+        }
+    }
+
+    static final class Bucket extends AtomicLong {
+
+        Bucket(long theoreticalArrival) {
+            super(theoreticalArrival);
+        }
+
+        /**
+         * @return 0 when a token was taken, otherwise how many nanoseconds until one is available
+         */
+        long tryAcquire(long now, long interval, long tolerance) {
+            while (true) {
+                long arrival = get();
+                long start = arrival - now > 0 ? arrival : now;
+                long wait = start - now - tolerance;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (compareAndSet(arrival, start + interval)) {
+                    return 0;
+                }
+            }
+        }
+
+        boolean isFull(long now) {
+            return get() - now <= 0;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.luiz.libraryapi.service.concurrent;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Queues writes from concurrent callers and hands them to the writer in batches, so many callers
+ * share one transaction and one commit. A batch closes when it reaches {@code maxBatch} items or
+ * when {@code window} has passed since its first item. Each caller's future completes once its
+ * batch has been written. If a batch fails, its items are retried one by one so a single bad item
+ * only fails its own caller. An {@link Error} from the writer fails the batch it was writing, and the
+ * flusher carries on with the next one.
+ */
+public class GroupCommitter<T> implements AutoCloseable {
+
+    private final BlockingQueue<Pending<T>> queue = new LinkedBlockingQueue<>();
+    private final Function<List<T>, List<T>> writer;
+    private final int maxBatch;
+    private final long windowNanos;
+    private final DistributionSummary batchSize;
+    private final Timer flushTimer;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    public GroupCommitter(String name, int maxBatch, Duration window, Function<List<T>, List<T>> writer,
+                          MeterRegistry meterRegistry) {
+        this.writer = writer;
+        this.maxBatch = maxBatch;
+        this.windowNanos = window.toNanos();
+        this.batchSize = DistributionSummary.builder("library.group_commit.batch.size")
+                .tag("name", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("library.group_commit.flush")
+                .tag("name", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.flusher = new Thread(this::run, name + "-group-commit");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    public CompletableFuture<T> submit(T item) {
+        if (!running) {
+            throw new IllegalStateException("Group committer is closed");
+        }
+        Pending<T> pending = new Pending<>(item);
+        queue.add(pending);
+        return pending.result;
+    }
+
+    private void run() {
+        List<Pending<T>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending<T> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    queue.drainTo(batch, maxBatch - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatch || remaining <= 0) {
+                        break;
+                    }
+                    Pending<T> next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                running = false;
+                failPending(batch, e);
+                return;
+            } catch (Throwable e) {
+                // an Error must not end the flusher, or every caller after it would wait on a queue nobody drains
+                batch.forEach(pending -> pending.result.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<Pending<T>> batch) {
+        batchSize.record(batch.size());
+        List<T> items = new ArrayList<>(batch.size());
+        for (Pending<T> pending : batch) {
+            items.add(pending.item);
+        }
+        try {
+            List<T> written = flushTimer.record(() -> writer.apply(items));
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result.complete(written.get(i));
+            }
+        } catch (RuntimeException batchFailure) {
+            for (Pending<T> pending : batch) {
+                try {
+                    pending.result.complete(writer.apply(Collections.singletonList(pending.item)).get(0));
+                } catch (RuntimeException e) {
+                    pending.result.completeExceptionally(e);
+                }
+            }
+        }
+    }
+
+    private void failPending(List<Pending<T>> batch, Throwable cause) {
+        batch.forEach(pending -> pending.result.completeExceptionally(cause));
+        Pending<T> pending;
+        while ((pending = queue.poll()) != null) {
+            pending.result.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Stops accepting items and waits for the queued ones to be written. The flusher is not
+     * interrupted, since interrupting a thread in the middle of file IO can close the database file.
+     */
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+        Pending<T> late;
+        while ((late = queue.poll()) != null) {
+            late.result.completeExceptionally(new IllegalStateException("Group committer is closed"));
+        }
+    }
+
+    private static class Pending<T> {
+        final T item;
+        final CompletableFuture<T> result = new CompletableFuture<>();
+
+        Pending(T item) {
+            this.item = item;
+        }
+    }
+}
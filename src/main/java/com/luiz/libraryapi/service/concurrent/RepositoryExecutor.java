@@ -0,0 +1,70 @@
+package com.luiz.libraryapi.service.concurrent;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool that runs blocking repository work off the servlet threads. When both the
+ * threads and the queue are busy the submission fails at once with a
+ * {@link RejectedExecutionException} instead of letting requests pile up.
+ * With {@code library.async.enabled=false} the work runs inline on the calling thread.
+ */
+@Component
+public class RepositoryExecutor {
+
+    private final ExecutorService executor;
+
+    public RepositoryExecutor(@Value("${library.async.enabled:true}") boolean enabled,
+                              @Value("${library.async.threads:16}") int threads,
+                              @Value("${library.async.queue-capacity:256}") int queueCapacity,
+                              MeterRegistry meterRegistry) {
+        if (enabled) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("repository-"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            this.executor = ExecutorServiceMetrics.monitor(meterRegistry, pool, "repository", Collections.emptyList());
+        } else {
+            this.executor = null;
+        }
+    }
+
+    public <T> CompletableFuture<T> submit(Supplier<T> work) {
+        if (executor == null) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                result.complete(work.get());
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        return CompletableFuture.supplyAsync(work, executor);
+    }
+
+    public CompletableFuture<Void> run(Runnable work) {
+        return submit(() -> {
+            work.run();
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
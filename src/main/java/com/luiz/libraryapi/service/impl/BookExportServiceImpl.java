@@ -0,0 +1,46 @@
+package com.luiz.libraryapi.service.impl;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.repository.BookRepository;
+import com.luiz.libraryapi.service.BookExportService;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+@Service
+public class BookExportServiceImpl implements BookExportService {
+
+    private final BookRepository bookRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public BookExportServiceImpl(BookRepository bookRepository, EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager) {
+        this.bookRepository = bookRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    @Override
+    public void exportBooks(Consumer<Book> sink) {
+        transactionTemplate.executeWithoutResult(status -> {
+            // a full scan would otherwise fill the Book cache region and push out the entries lookups keep hot;
+            // set on the session because rows of a stream load after a query-level hint has been reset
+            entityManager.unwrap(Session.class).setCacheMode(CacheMode.IGNORE);
+            try (Stream<Book> books = bookRepository.streamAll()) {
+                books.forEach(book -> {
+                    sink.accept(book);
+                    // the persistence context would otherwise hold on to every exported row
+                    entityManager.detach(book);
+                });
+            }
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package com.luiz.libraryapi.service.impl;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.api.dto.BookImportReport;
+import com.luiz.libraryapi.api.io.BookImportRow;
+import com.luiz.libraryapi.repository.BookRepository;
+import com.luiz.libraryapi.service.BookImportService;
+import com.luiz.libraryapi.service.index.BookTextIndex;
+import com.luiz.libraryapi.service.index.IsbnFilter;
+import com.luiz.libraryapi.service.index.IsbnIndex;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+@Service
+public class BookImportServiceImpl implements BookImportService {
+
+    private final BookRepository bookRepository;
+    private final IsbnIndex isbnIndex;
+    private final BookTextIndex bookTextIndex;
+    private final IsbnFilter isbnFilter;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BookImportServiceImpl(BookRepository bookRepository, IsbnIndex isbnIndex, BookTextIndex bookTextIndex,
+                                 IsbnFilter isbnFilter, EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${library.import.chunk-size:500}") int chunkSize) {
+        this.bookRepository = bookRepository;
+        this.isbnIndex = isbnIndex;
+        this.bookTextIndex = bookTextIndex;
+        this.isbnFilter = isbnFilter;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public BookImportReport importBooks(Iterator<BookImportRow> rows) {
+        BookImportReport report = new BookImportReport();
+        List<BookImportRow> chunk = new ArrayList<>(chunkSize);
+        while (rows.hasNext()) {
+            BookImportRow row = rows.next();
+            if (!row.isValid()) {
+                report.addError(row.getLine(), null, row.getError());
+                continue;
+            }
+            chunk.add(row);
+            if (chunk.size() == chunkSize) {
+                importChunk(chunk, report);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty()) {
+            importChunk(chunk, report);
+        }
+        return report;
+    }
+
+    private void importChunk(List<BookImportRow> chunk, BookImportReport report) {
+        Set<String> isbns = new HashSet<>(chunk.size() * 2);
+        chunk.forEach(row -> isbns.add(row.getBook().getIsbn()));
+        Set<String> existing = bookRepository.findExistingIsbns(isbns);
+
+        List<BookImportRow> accepted = new ArrayList<>(chunk.size());
+        Set<String> seen = new HashSet<>(chunk.size() * 2);
+        for (BookImportRow row : chunk) {
+            String isbn = row.getBook().getIsbn();
+            if (existing.contains(isbn) || !seen.add(isbn)) {
+                report.addError(row.getLine(), isbn, "Isbn já Cadastrado");
+            } else {
+                accepted.add(row);
+            }
+        }
+        if (accepted.isEmpty()) {
+            return;
+        }
+
+        List<Book> books = new ArrayList<>(accepted.size());
+        accepted.forEach(row -> books.add(row.getBook()));
+        if (save(books)) {
+            books.forEach(this::index);
+            report.setImported(report.getImported() + books.size());
+            return;
+        }
+        // the batch was rolled back: retry row by row so only the offending rows are rejected
+        for (BookImportRow row : accepted) {
+            Book book = row.getBook();
+            if (save(Collections.singletonList(book))) {
+                index(book);
+                report.setImported(report.getImported() + 1);
+            } else {
+                report.addError(row.getLine(), book.getIsbn(), "Rejected by the database");
+            }
+        }
+    }
+
+    private boolean save(List<Book> books) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                bookRepository.saveAll(books);
+                // push the JDBC batch out and drop the managed copies so memory stays flat across chunks
+                bookRepository.flush();
+                entityManager.clear();
+            });
+            return true;
+        } catch (DataAccessException | TransactionException ex) {
+            // ids and versions assigned by the rolled back transaction are meaningless now
+            books.forEach(book -> {
+                book.setId(null);
+                book.setVersion(null);
+            });
+            return false;
+        }
+    }
+
+    private void index(Book book) {
+        isbnIndex.put(book.getIsbn(), book.getId());
+        isbnFilter.put(book.getIsbn());
+        bookTextIndex.put(book.getId(), book.getTittle(), book.getAuthor());
+    }
+}
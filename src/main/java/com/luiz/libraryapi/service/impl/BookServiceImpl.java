@@ -2,35 +2,119 @@ package com.luiz.libraryapi.service.impl;
 
 import com.luiz.libraryapi.api.domain.Book;
 import com.luiz.libraryapi.exception.BusinessException;
+import com.luiz.libraryapi.repository.BookKeyset;
 import com.luiz.libraryapi.repository.BookRepository;
 import com.luiz.libraryapi.service.BookService;
+import com.luiz.libraryapi.service.concurrent.SingleFlight;
+import com.luiz.libraryapi.service.index.BookTextIndex;
+import com.luiz.libraryapi.service.index.IsbnFilter;
+import com.luiz.libraryapi.service.index.IsbnIndex;
+import com.luiz.libraryapi.service.metrics.MethodTimers;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.ExampleMatcher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.convert.QueryByExamplePredicateBuilder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
+@Service
 public class BookServiceImpl implements BookService {
 
 
     private BookRepository bookRepository;
+    private IsbnIndex isbnIndex;
+    private BookTextIndex bookTextIndex;
+    private IsbnFilter isbnFilter;
+    private SingleFlight<Long, Optional<Book>> byIdLoads = new SingleFlight<>(BookServiceImpl::copyOf);
+    private SingleFlight<String, Optional<Book>> byIsbnLoads = new SingleFlight<>(BookServiceImpl::copyOf);
+    private MethodTimers saveTimers;
+    private MethodTimers getByIdTimers;
+    private MethodTimers deleteTimers;
+    private MethodTimers updateTimers;
+    private MethodTimers findTimers;
+    private MethodTimers findAfterTimers;
+    private MethodTimers getBookByIsbnTimers;
 
-    public BookServiceImpl(BookRepository bookRepository) {
+    public BookServiceImpl(BookRepository bookRepository, IsbnIndex isbnIndex, BookTextIndex bookTextIndex,
+                           IsbnFilter isbnFilter, StageTimers stageTimers) {
         this.bookRepository = bookRepository;
+        this.isbnIndex = isbnIndex;
+        this.bookTextIndex = bookTextIndex;
+        this.isbnFilter = isbnFilter;
+        this.saveTimers = stageTimers.forMethod("BookService.save");
+        this.getByIdTimers = stageTimers.forMethod("BookService.getById");
+        this.deleteTimers = stageTimers.forMethod("BookService.delete");
+        this.updateTimers = stageTimers.forMethod("BookService.update");
+        this.findTimers = stageTimers.forMethod("BookService.find");
+        this.findAfterTimers = stageTimers.forMethod("BookService.findAfter");
+        this.getBookByIsbnTimers = stageTimers.forMethod("BookService.getBookByIsbn");
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpIndexes() {
+        // the entries are read inside the filter rebuild, so ISBNs saved meanwhile reach the new filter
+        isbnFilter.rebuild((int) bookRepository.countIndexEntries(), () -> {
+            List<BookRepository.IndexEntry> entries = bookRepository.findAllIndexEntries();
+            entries.forEach(entry -> {
+                isbnIndex.put(entry.getIsbn(), entry.getId());
+                bookTextIndex.put(entry.getId(), entry.getTittle(), entry.getAuthor());
+            });
+            bookTextIndex.markReady();
+            return isbns(entries);
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${library.isbn-filter.check-interval-ms:300000}")
+    public void refreshIsbnFilter() {
+        // deleted ISBNs stay set in the bits, so the filter is rebuilt once they make it too noisy
+        if (isbnFilter.needsRebuild()) {
+            isbnFilter.rebuild((int) bookRepository.countIndexEntries(), () -> isbns(bookRepository.findAllIndexEntries()));
+        }
+    }
+
+    private static Iterable<String> isbns(List<BookRepository.IndexEntry> entries) {
+        return () -> entries.stream().map(BookRepository.IndexEntry::getIsbn).iterator();
     }
 
     @Override
     public Book save(Book any) {
-        if (bookRepository.existsByIsbn(any.getIsbn())) {
+        // a definite "no" from the filter skips the existence query; the unique index catches any race
+        boolean duplicated = saveTimers.validation(() -> isbnIndex.contains(any.getIsbn())
+                || (isbnFilter.mightContain(any.getIsbn()) && bookRepository.existsByIsbn(any.getIsbn())));
+        if (duplicated) {
+            throw new BusinessException("Isbn já Cadastrado");
+        }
+        Book saved;
+        try {
+            saved = saveTimers.repository(() -> bookRepository.save(any));
+        } catch (DataIntegrityViolationException ex) {
             throw new BusinessException("Isbn já Cadastrado");
         }
-        return bookRepository.save(any);
+        isbnIndex.put(saved.getIsbn(), saved.getId());
+        isbnFilter.put(saved.getIsbn());
+        bookTextIndex.put(saved.getId(), saved.getTittle(), saved.getAuthor());
+        return saved;
     }
 
     @Override
     public Optional<Book> getById(Long id) {
-        return bookRepository.findById(id);
+        // coalesced outside any transaction, so waiting callers do not hold a connection
+        return getByIdTimers.repository(() -> byIdLoads.execute(id, () -> bookRepository.findById(id)));
     }
 
     @Override
@@ -38,7 +122,10 @@ public class BookServiceImpl implements BookService {
         if (book == null || book.getId() == null){
             throw  new IllegalArgumentException(" Book id cant be null.");
         }
-        bookRepository.delete(book);
+        deleteTimers.repository(() -> bookRepository.delete(book));
+        isbnIndex.remove(book.getId());
+        isbnFilter.remove(book.getIsbn());
+        bookTextIndex.remove(book.getId());
     }
 
     @Override
@@ -46,21 +133,82 @@ public class BookServiceImpl implements BookService {
         if (book == null || book.getId() == null){
             throw  new IllegalArgumentException(" Book id cant be null.");
         }
-        return bookRepository.save(book);
+        // the previous isbn leaves stale bits in the filter when it changes, so its removal is counted
+        String previousIsbn = isbnIndex.getIsbn(book.getId());
+        if (previousIsbn == null) {
+            previousIsbn = bookRepository.findById(book.getId()).map(Book::getIsbn).orElse(null);
+        }
+        Book updated;
+        try {
+            updated = updateTimers.repository(() -> bookRepository.save(book));
+        } catch (DataIntegrityViolationException ex) {
+            throw new BusinessException("Isbn já Cadastrado");
+        }
+        if (previousIsbn != null && !previousIsbn.equals(book.getIsbn())) {
+            isbnFilter.remove(previousIsbn);
+        }
+        isbnIndex.put(book.getIsbn(), book.getId());
+        isbnFilter.put(book.getIsbn());
+        bookTextIndex.put(book.getId(), book.getTittle(), book.getAuthor());
+        return updated;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Page<Book> find(Book filter, Pageable pageRequest) {
         Example<Book> example = Example.of(filter, ExampleMatcher
                 .matching()
                 .withIgnoreCase()
                 .withIgnoreNullValues()
                 .withStringMatcher(ExampleMatcher.StringMatcher.CONTAINING));
-        return bookRepository.findAll(example, pageRequest);
+        Set<Long> ids = bookTextIndex.match(filter);
+        if (ids == null) {
+            return findTimers.repository(() -> bookRepository.findAll(example, pageRequest));
+        }
+        if (ids.isEmpty()) {
+            return new PageImpl<>(Collections.emptyList(), pageRequest, 0);
+        }
+        return findTimers.repository(() -> bookRepository.findAll((root, query, cb) -> cb.and(
+                root.get("id").in(ids),
+                QueryByExamplePredicateBuilder.getPredicate(root, cb, example)), pageRequest));
     }
 
     @Override
-    public Optional<Book> getBookByIsbn(String s) {
-        return Optional.empty();
+    public Slice<Book> findAfter(Book filter, BookKeyset keyset, int size) {
+        // one extra row tells whether another page exists without a count query
+        Set<Long> ids = bookTextIndex.match(filter);
+        if (ids != null && ids.isEmpty()) {
+            return new SliceImpl<>(Collections.emptyList(), PageRequest.of(0, size), false);
+        }
+        List<Book> books = findAfterTimers.repository(() -> bookRepository.findPage(filter, ids, keyset, size + 1));
+        boolean hasNext = books.size() > size;
+        return new SliceImpl<>(hasNext ? books.subList(0, size) : books, PageRequest.of(0, size), hasNext);
+    }
+
+    @Override
+    public Optional<Book> getBookByIsbn(String isbn) {
+        // an indexed isbn is loaded by id, which the second-level cache answers; an entry gone stale
+        // (book deleted or its isbn changed) falls back to the isbn query and is dropped if nothing matches
+        Long id = isbnIndex.getId(isbn);
+        Optional<Book> book = getBookByIsbnTimers.repository(() -> byIsbnLoads.execute(isbn, () -> {
+            if (id != null) {
+                Optional<Book> indexed = bookRepository.findById(id).filter(found -> isbn.equals(found.getIsbn()));
+                if (indexed.isPresent()) {
+                    return indexed;
+                }
+            }
+            return bookRepository.findByIsbn(isbn);
+        }));
+        if (book.isPresent()) {
+            isbnIndex.put(book.get().getIsbn(), book.get().getId());
+        } else if (id != null) {
+            isbnIndex.remove(id);
+        }
+        return book;
+    }
+
+    // callers such as the update endpoint modify the book they receive, so coalesced callers each get their own
+    private static Optional<Book> copyOf(Optional<Book> book) {
+        return book.map(found -> found.toBuilder().build());
     }
 }
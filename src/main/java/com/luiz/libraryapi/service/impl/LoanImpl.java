@@ -1,17 +1,278 @@
 package com.luiz.libraryapi.service.impl;
 
 import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanFilterDTO;
+import com.luiz.libraryapi.api.dto.LoanReturnReport;
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import com.luiz.libraryapi.exception.BusinessException;
 import com.luiz.libraryapi.repository.LoanRepository;
 import com.luiz.libraryapi.service.LoanService;
-import org.springframework.beans.factory.annotation.Autowired;
+import com.luiz.libraryapi.service.concurrent.GroupCommitter;
+import com.luiz.libraryapi.service.concurrent.StripedLocks;
+import com.luiz.libraryapi.service.index.ActiveLoanCounters;
+import com.luiz.libraryapi.service.metrics.MethodTimers;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+@Service
 public class LoanImpl implements LoanService {
 
-    @Autowired
-    public LoanRepository loanRepository;
+    private final LoanRepository loanRepository;
+    private final StripedLocks isbnLocks;
+    private final MethodTimers saveTimers;
+    private final MethodTimers findTimers;
+    private final MethodTimers returnTimers;
+    private final int returnChunkSize;
+    private final GroupCommitter<Loan> groupCommitter;
+    private final Set<String> pendingIsbns = ConcurrentHashMap.newKeySet();
+    private final ActiveLoanCounters activeLoans;
+
+    public LoanImpl(LoanRepository loanRepository, @Value("${library.loan.lock-stripes:256}") int lockStripes,
+                    StageTimers stageTimers, Optional<GroupCommitter<Loan>> loanGroupCommitter,
+                    @Value("${library.loan.return-chunk-size:500}") int returnChunkSize,
+                    ActiveLoanCounters activeLoans) {
+        this.loanRepository = loanRepository;
+        this.activeLoans = activeLoans;
+        this.isbnLocks = new StripedLocks(lockStripes);
+        this.groupCommitter = loanGroupCommitter.orElse(null);
+        this.saveTimers = stageTimers.forMethod("LoanService.save");
+        this.findTimers = stageTimers.forMethod("LoanService.find");
+        this.returnTimers = stageTimers.forMethod("LoanService.returnLoans");
+        this.returnChunkSize = returnChunkSize;
+    }
 
     @Override
     public Loan save(Loan any) {
-        return loanRepository.save(any);
+        if (any == null || any.getIsbn() == null) {
+            throw new IllegalArgumentException(" Loan isbn cant be null.");
+        }
+        // the check and the insert commit while the stripe is held, so two requests for the same
+        // isbn cannot both see the book as available; other isbns proceed in parallel
+        if (groupCommitter != null) {
+            return saveGrouped(any);
+        }
+        Lock lock = isbnLocks.get(any.getIsbn());
+        lock.lock();
+        try {
+            if (saveTimers.validation(() -> !isAvailable(any.getIsbn()))) {
+                throw new BusinessException("Book already loaned");
+            }
+            any.setReturned(false);
+            // the counters see the write as in flight until it is counted, so a reconcile leaves these keys alone
+            activeLoans.begin(any.getIsbn(), any.getCustomer());
+            Loan saved = null;
+            try {
+                saved = saveTimers.repository(() -> loanRepository.save(any));
+            } finally {
+                if (saved == null) {
+                    activeLoans.cancelled(any.getIsbn(), any.getCustomer());
+                }
+            }
+            activeLoans.loaned(any.getIsbn(), any.getCustomer());
+            return saved;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Loan saveGrouped(Loan any) {
+        // the stripe only covers the check and the enqueue; until the batch commits and the loan is
+        // counted, the isbn stays in pendingIsbns so the next check still sees the book as taken
+        CompletableFuture<Loan> saved;
+        Lock lock = isbnLocks.get(any.getIsbn());
+        lock.lock();
+        try {
+            boolean loaned = saveTimers.validation(() ->
+                    pendingIsbns.contains(any.getIsbn()) || !isAvailable(any.getIsbn()));
+            if (loaned) {
+                throw new BusinessException("Book already loaned");
+            }
+            any.setReturned(false);
+            pendingIsbns.add(any.getIsbn());
+            activeLoans.begin(any.getIsbn(), any.getCustomer());
+            try {
+                saved = groupCommitter.submit(any);
+            } catch (RuntimeException e) {
+                activeLoans.cancelled(any.getIsbn(), any.getCustomer());
+                pendingIsbns.remove(any.getIsbn());
+                throw e;
+            }
+        } finally {
+            lock.unlock();
+        }
+        Loan loan = null;
+        try {
+            loan = saveTimers.repository(saved::join);
+            return loan;
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        } finally {
+            if (loan == null) {
+                activeLoans.cancelled(any.getIsbn(), any.getCustomer());
+            } else {
+                activeLoans.loaned(any.getIsbn(), any.getCustomer());
+            }
+            pendingIsbns.remove(any.getIsbn());
+        }
+    }
+
+    @Override
+    public Page<LoanSummaryDTO> find(LoanFilterDTO filter, Pageable pageRequest) {
+        return findTimers.repository(() -> loanRepository.findSummaries(
+                filter.getCustomer(), filter.getIsbn(), filter.getReturned(), pageRequest));
+    }
+
+    @Override
+    public LoanReturnReport returnLoans(Collection<Long> ids, Collection<String> isbns) {
+        // reads (id, isbn, returned) per chunk to find the candidates, then reports an item as returned
+        // only when its guarded update changed the row; a concurrent return of the same loan loses the race
+        LoanReturnReport report = new LoanReturnReport();
+        for (List<Long> chunk : chunks(ids)) {
+            Map<Long, LoanRepository.ReturnState> states = new HashMap<>(chunk.size() * 2);
+            returnTimers.repository(() -> loanRepository.findReturnStates(chunk))
+                    .forEach(state -> states.put(state.getId(), state));
+            List<LoanRepository.ReturnState> active = new ArrayList<>(chunk.size());
+            chunk.stream().map(states::get)
+                    .filter(state -> state != null && !Boolean.TRUE.equals(state.getReturned()))
+                    .forEach(active::add);
+            Set<Long> returned = markReturned(active);
+            for (Long id : chunk) {
+                LoanRepository.ReturnState state = states.get(id);
+                if (state == null) {
+                    report.add(id, null, LoanReturnReport.Status.NOT_FOUND);
+                } else if (returned.contains(id)) {
+                    report.add(id, state.getIsbn(), LoanReturnReport.Status.RETURNED);
+                } else {
+                    report.add(id, state.getIsbn(), LoanReturnReport.Status.ALREADY_RETURNED);
+                }
+            }
+        }
+        for (List<String> chunk : chunks(isbns)) {
+            // an isbn can have more than one active loan, and every one of them is returned
+            Map<String, List<LoanRepository.ReturnState>> states = new HashMap<>(chunk.size() * 2);
+            List<LoanRepository.ReturnState> active = returnTimers.repository(() -> loanRepository.findActiveReturnStates(chunk));
+            active.forEach(state -> states.computeIfAbsent(state.getIsbn(), isbn -> new ArrayList<>(1)).add(state));
+            Set<Long> returned = markReturned(active);
+            for (String isbn : chunk) {
+                boolean found = false;
+                for (LoanRepository.ReturnState loan : states.getOrDefault(isbn, Collections.emptyList())) {
+                    if (returned.contains(loan.getId())) {
+                        report.add(loan.getId(), isbn, LoanReturnReport.Status.RETURNED);
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    report.add(null, isbn, LoanReturnReport.Status.NOT_FOUND);
+                }
+            }
+        }
+        return report;
+    }
+
+    private Set<Long> markReturned(List<LoanRepository.ReturnState> loans) {
+        if (loans.isEmpty()) {
+            return Collections.emptySet();
+        }
+        List<Long> ids = new ArrayList<>(loans.size());
+        loans.forEach(loan -> ids.add(loan.getId()));
+        loans.forEach(loan -> activeLoans.begin(loan.getIsbn(), loan.getCustomer()));
+        Set<Long> returned = Collections.emptySet();
+        try {
+            returned = new HashSet<>(returnTimers.repository(() -> loanRepository.markReturned(ids)));
+            return returned;
+        } finally {
+            // only the rows this call changed are uncounted
+            for (LoanRepository.ReturnState loan : loans) {
+                if (returned.contains(loan.getId())) {
+                    activeLoans.returned(loan.getIsbn(), loan.getCustomer());
+                } else {
+                    activeLoans.cancelled(loan.getIsbn(), loan.getCustomer());
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean isAvailable(String isbn) {
+        // O(1) once the counters have been loaded; until then the (isbn, returned) index answers
+        return activeLoans.isReady()
+                ? activeLoans.activeLoansForBook(isbn) == 0
+                : !loanRepository.existsByIsbnAndReturnedFalse(isbn);
+    }
+
+    @Override
+    public long countActiveLoans(String customer) {
+        return activeLoans.isReady()
+                ? activeLoans.activeLoansForCustomer(customer)
+                : loanRepository.countByCustomerAndReturnedFalse(customer);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${library.loan.counters.reconcile-interval-ms:300000}")
+    public void reconcileActiveLoans() {
+        // repairs drift from writes this instance did not see, such as loans changed directly in the database
+        activeLoans.reconcile(new ActiveLoanCounters.SnapshotSource() {
+            @Override
+            public Map<String, Integer> activeLoansByIsbn() {
+                return toMap(loanRepository.countActiveByIsbn());
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByCustomer() {
+                return toMap(loanRepository.countActiveByCustomer());
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByIsbn(Collection<String> isbns) {
+                Map<String, Integer> counts = new HashMap<>(isbns.size() * 2);
+                chunks(isbns).forEach(chunk -> counts.putAll(toMap(loanRepository.countActiveByIsbn(chunk))));
+                return counts;
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByCustomer(Collection<String> customers) {
+                Map<String, Integer> counts = new HashMap<>(customers.size() * 2);
+                chunks(customers).forEach(chunk -> counts.putAll(toMap(loanRepository.countActiveByCustomer(chunk))));
+                return counts;
+            }
+        });
+    }
+
+    private static Map<String, Integer> toMap(List<LoanRepository.ActiveCount> counts) {
+        Map<String, Integer> map = new HashMap<>(counts.size() * 2);
+        counts.stream()
+                .filter(count -> count.getName() != null)
+                .forEach(count -> map.put(count.getName(), count.getTotal().intValue()));
+        return map;
+    }
+
+    private <T> List<List<T>> chunks(Collection<T> items) {
+        List<T> distinct = new ArrayList<>(new LinkedHashSet<>(items));
+        List<List<T>> chunks = new ArrayList<>();
+        for (int from = 0; from < distinct.size(); from += returnChunkSize) {
+            chunks.add(distinct.subList(from, Math.min(from + returnChunkSize, distinct.size())));
+        }
+        return chunks;
     }
 }
@@ -0,0 +1,96 @@
+package com.luiz.libraryapi.service.impl;
+
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import com.luiz.libraryapi.repository.LoanRepository;
+import com.luiz.libraryapi.service.OverdueLoanService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+@Service
+@Lazy(false) // the scan has to start with the application, not with the first overdue query
+public class OverdueLoanServiceImpl implements OverdueLoanService {
+
+    // loans are only ever created with today's date, so nothing can appear behind the high-water mark
+    private static final LocalDate START = LocalDate.of(1970, 1, 1);
+
+    private final LoanRepository loanRepository;
+    private final int loanDays;
+    private final int chunkSize;
+    private final NavigableMap<Long, LoanSummaryDTO> overdue = new ConcurrentSkipListMap<>();
+    // loans returned while a scan runs; one of them may have been read before its return committed
+    private volatile Set<Long> returnedDuringScan;
+    private LocalDate lastLoanDate = START;
+    private long lastId;
+
+    public OverdueLoanServiceImpl(LoanRepository loanRepository,
+                                  @Value("${library.loan.days:3}") int loanDays,
+                                  @Value("${library.overdue.chunk-size:500}") int chunkSize) {
+        this.loanRepository = loanRepository;
+        this.loanDays = loanDays;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${library.overdue.scan-interval-ms:60000}")
+    public synchronized int scan() {
+        // resume after the last loan already seen, so a run only reads loans that became overdue since
+        LocalDate cutoff = LocalDate.now().minusDays(loanDays);
+        PageRequest chunk = PageRequest.of(0, chunkSize);
+        int found = 0;
+        List<LoanSummaryDTO> loans;
+        Set<Long> returned = ConcurrentHashMap.newKeySet();
+        returnedDuringScan = returned;
+        try {
+            do {
+                loans = loanRepository.findOverdueAfter(cutoff, lastLoanDate, lastId, chunk);
+                for (LoanSummaryDTO loan : loans) {
+                    overdue.put(loan.getId(), loan);
+                    // remove() records the id before removing it, so either it sees this entry or this check sees the id
+                    if (returned.contains(loan.getId())) {
+                        overdue.remove(loan.getId());
+                    }
+                    lastLoanDate = loan.getLoanDate();
+                    lastId = loan.getId();
+                }
+                found += loans.size();
+            } while (loans.size() == chunkSize);
+        } finally {
+            returnedDuringScan = null;
+        }
+        return found;
+    }
+
+    @Override
+    public Page<LoanSummaryDTO> find(Pageable pageRequest) {
+        List<LoanSummaryDTO> content = overdue.values().stream()
+                .skip(pageRequest.getOffset())
+                .limit(pageRequest.getPageSize())
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageRequest, overdue.size());
+    }
+
+    @Override
+    public void remove(Collection<Long> loanIds) {
+        // returned loans never come back as overdue: the scan only reads loans past its mark
+        Set<Long> returned = returnedDuringScan;
+        if (returned != null) {
+            returned.addAll(loanIds);
+        }
+        loanIds.forEach(overdue::remove);
+    }
+}
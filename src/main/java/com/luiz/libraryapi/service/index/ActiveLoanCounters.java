@@ -0,0 +1,155 @@
+package com.luiz.libraryapi.service.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Active-loan counts per ISBN and per customer, kept in step with loan creation and return so
+ * availability is a map lookup instead of a query.
+ * A writer calls {@link #begin} before its database write and {@link #loaned}, {@link #returned}
+ * or {@link #cancelled} after it, so every key knows whether a write is in flight. Each change
+ * installs a new immutable counter, which lets {@link #reconcile} compare-and-set keys one by one
+ * without blocking writers. Keys that drop to zero are pruned by the next reconcile.
+ */
+@Component
+public class ActiveLoanCounters {
+
+    // rounds of keyed recounts for keys that were written to while the snapshot was read
+    private static final int RECOUNT_ATTEMPTS = 3;
+
+    private final ConcurrentMap<String, Counter> byIsbn = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Counter> byCustomer = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    public void begin(String isbn, String customer) {
+        update(byIsbn, isbn, 0, 1);
+        update(byCustomer, customer, 0, 1);
+    }
+
+    public void loaned(String isbn, String customer) {
+        update(byIsbn, isbn, 1, -1);
+        update(byCustomer, customer, 1, -1);
+    }
+
+    public void returned(String isbn, String customer) {
+        update(byIsbn, isbn, -1, -1);
+        update(byCustomer, customer, -1, -1);
+    }
+
+    public void cancelled(String isbn, String customer) {
+        update(byIsbn, isbn, 0, -1);
+        update(byCustomer, customer, 0, -1);
+    }
+
+    public int activeLoansForBook(String isbn) {
+        return isbn == null ? 0 : count(byIsbn.get(isbn));
+    }
+
+    public int activeLoansForCustomer(String customer) {
+        return customer == null ? 0 : count(byCustomer.get(customer));
+    }
+
+    /**
+     * Corrects the counters with counts read from the database while writers keep going. A key is
+     * replaced only if it had no write in flight before the read and is still the same counter
+     * after it, so every write the read may have missed or double counted is detected. Those keys
+     * are counted again on their own a few times and otherwise left to the next run.
+     */
+    public synchronized void reconcile(SnapshotSource source) {
+        reconcile(byIsbn, source::activeLoansByIsbn, source::activeLoansByIsbn);
+        reconcile(byCustomer, source::activeLoansByCustomer, source::activeLoansByCustomer);
+        ready = true;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    private static void reconcile(ConcurrentMap<String, Counter> counters, Supplier<Map<String, Integer>> all,
+                                  Function<Collection<String>, Map<String, Integer>> some) {
+        Map<String, Counter> before = new HashMap<>(counters);
+        Map<String, Integer> counts = all.get();
+        Set<String> keys = new HashSet<>(before.keySet());
+        keys.addAll(counts.keySet());
+        Set<String> missed = replace(counters, keys, before, counts);
+        for (int attempt = 0; attempt < RECOUNT_ATTEMPTS && !missed.isEmpty(); attempt++) {
+            before = new HashMap<>(missed.size() * 2);
+            for (String key : missed) {
+                Counter counter = counters.get(key);
+                if (counter != null) {
+                    before.put(key, counter);
+                }
+            }
+            missed = replace(counters, missed, before, some.apply(missed));
+        }
+    }
+
+    // returns the keys that changed between the read of `before` and now
+    private static Set<String> replace(ConcurrentMap<String, Counter> counters, Set<String> keys,
+                                       Map<String, Counter> before, Map<String, Integer> counts) {
+        Set<String> missed = new HashSet<>();
+        for (String key : keys) {
+            Counter seen = before.get(key);
+            int count = counts.getOrDefault(key, 0);
+            boolean replaced;
+            if (seen == null) {
+                // writers never remove keys, so an absent key was not touched since `before` was read
+                replaced = count == 0 || counters.putIfAbsent(key, new Counter(count, 0)) == null;
+            } else if (seen.pending > 0) {
+                replaced = false;
+            } else if (count == 0) {
+                replaced = counters.remove(key, seen);
+            } else {
+                replaced = counters.replace(key, seen, new Counter(count, 0));
+            }
+            if (!replaced) {
+                missed.add(key);
+            }
+        }
+        return missed;
+    }
+
+    private static void update(ConcurrentMap<String, Counter> counters, String key, int delta, int pending) {
+        if (key != null) {
+            counters.compute(key, (k, counter) -> counter == null
+                    ? new Counter(Math.max(delta, 0), pending)
+                    : new Counter(Math.max(counter.count + delta, 0), counter.pending + pending));
+        }
+    }
+
+    private static int count(Counter counter) {
+        return counter == null ? 0 : counter.count;
+    }
+
+    public interface SnapshotSource {
+
+        Map<String, Integer> activeLoansByIsbn();
+
+        Map<String, Integer> activeLoansByCustomer();
+
+        Map<String, Integer> activeLoansByIsbn(Collection<String> isbns);
+
+        Map<String, Integer> activeLoansByCustomer(Collection<String> customers);
+    }
+
+    // compared by identity: every update installs a new instance, so an unchanged reference means no write
+    private static final class Counter {
+
+        final int count;
+        final int pending;
+
+        Counter(int count, int pending) {
+            this.count = count;
+            this.pending = pending;
+        }
+    }
+}
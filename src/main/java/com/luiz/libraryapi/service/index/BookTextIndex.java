@@ -0,0 +1,69 @@
+package com.luiz.libraryapi.service.index;
+
+import com.luiz.libraryapi.api.domain.Book;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Trigram indexes over Book.tittle and Book.author used to resolve the ids matching a
+ * find filter before the database is queried.
+ */
+@Component
+public class BookTextIndex {
+
+    private final TrigramIndex tittles = new TrigramIndex();
+    private final TrigramIndex authors = new TrigramIndex();
+    private final int maxCandidates;
+    private volatile boolean ready;
+
+    public BookTextIndex(@Value("${library.search.max-candidates:1000}") int maxCandidates) {
+        this.maxCandidates = maxCandidates;
+    }
+
+    public void put(Long id, String tittle, String author) {
+        if (id == null) {
+            return;
+        }
+        tittles.put(id, tittle);
+        authors.put(id, author);
+    }
+
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        tittles.remove(id);
+        authors.remove(id);
+    }
+
+    public void markReady() {
+        ready = true;
+    }
+
+    /**
+     * @return ids of the books matching the filter's tittle and author terms, or {@code null} when
+     * the index cannot answer (not warmed yet, or no term that is indexable and selective enough)
+     */
+    public Set<Long> match(Book filter) {
+        if (!ready) {
+            return null;
+        }
+        Set<Long> result = intersect(null, tittles.search(filter.getTittle(), maxCandidates));
+        return intersect(result, authors.search(filter.getAuthor(), maxCandidates));
+    }
+
+    private static Set<Long> intersect(Set<Long> current, Set<Long> ids) {
+        if (ids == null) {
+            return current;
+        }
+        if (current == null) {
+            return ids;
+        }
+        Set<Long> result = new HashSet<>(current);
+        result.retainAll(ids);
+        return result;
+    }
+}
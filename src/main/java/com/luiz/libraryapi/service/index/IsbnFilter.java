@@ -0,0 +1,158 @@
+package com.luiz.libraryapi.service.index;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Bloom filter over every stored ISBN. A "no" is definite and lets book creation skip the
+ * existence query; a "maybe" still goes to the database. Deleted ISBNs cannot be cleared from
+ * the bits, so they are counted, and {@link #needsRebuild()} reports when deletions or growth
+ * have pushed the false-positive rate past twice the target.
+ */
+@Component
+public class IsbnFilter {
+
+    private final int expectedInsertions;
+    private final double falsePositiveRate;
+    private volatile Bits current;
+    private volatile Bits next;
+
+    public IsbnFilter(@Value("${library.isbn-filter.expected-insertions:1000000}") int expectedInsertions,
+                      @Value("${library.isbn-filter.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    /**
+     * @return {@code false} only when the ISBN was never added; {@code true} before the filter is built
+     */
+    public boolean mightContain(String isbn) {
+        Bits bits = current;
+        return bits == null || isbn == null || bits.mightContain(isbn);
+    }
+
+    public void put(String isbn) {
+        if (isbn == null) {
+            return;
+        }
+        Bits bits = current;
+        if (bits != null) {
+            bits.add(isbn);
+        }
+        Bits building = next;
+        if (building != null) {
+            building.add(isbn);
+        }
+    }
+
+    public void remove(String isbn) {
+        Bits bits = current;
+        if (isbn != null && bits != null) {
+            bits.removals.incrementAndGet();
+        }
+    }
+
+    /**
+     * Builds a fresh filter and swaps it in. The new filter is published before {@code snapshot} reads
+     * the stored ISBNs, and every ISBN put from then on goes into both filters, so a book saved while
+     * the snapshot is read is in the new filter whether or not the snapshot saw it.
+     */
+    public synchronized void rebuild(int count, Supplier<? extends Iterable<String>> snapshot) {
+        Bits building = new Bits(Math.max(expectedInsertions, count * 2), falsePositiveRate);
+        next = building;
+        try {
+            for (String isbn : snapshot.get()) {
+                building.add(isbn);
+            }
+            current = building;
+        } finally {
+            next = null;
+        }
+    }
+
+    public boolean isReady() {
+        return current != null;
+    }
+
+    public boolean needsRebuild() {
+        Bits bits = current;
+        if (bits == null) {
+            return false;
+        }
+        int insertions = bits.insertions.get();
+        return bits.expectedFalsePositiveRate() > falsePositiveRate * 2 || bits.removals.get() > insertions / 4 + 1000;
+    }
+
+    public double expectedFalsePositiveRate() {
+        Bits bits = current;
+        return bits == null ? 1.0 : bits.expectedFalsePositiveRate();
+    }
+
+    static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long size;
+        private final int hashes;
+        final AtomicInteger insertions = new AtomicInteger();
+        final AtomicInteger removals = new AtomicInteger();
+
+        Bits(int capacity, double falsePositiveRate) {
+            long bits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) ((bits + 63) / 64));
+            this.size = words.length() * 64L;
+            this.hashes = Math.max(1, (int) Math.round((double) size / capacity * Math.log(2)));
+        }
+
+        void add(String isbn) {
+            long hash = hash(isbn);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % size;
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long value;
+                do {
+                    value = words.get(word);
+                } while ((value & mask) == 0 && !words.compareAndSet(word, value, value | mask));
+            }
+            insertions.incrementAndGet();
+        }
+
+        boolean mightContain(String isbn) {
+            long hash = hash(isbn);
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            for (int i = 1; i <= hashes; i++) {
+                long bit = ((h1 + i * h2) & Long.MAX_VALUE) % size;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double expectedFalsePositiveRate() {
+            return Math.pow(1 - Math.exp(-(double) hashes * insertions.get() / size), hashes);
+        }
+
+        // 64-bit FNV-1a over the chars, finished with the MurmurHash3 mixer; its halves feed double hashing
+        private static long hash(String isbn) {
+            long hash = 0xcbf29ce484222325L;
+            for (int i = 0; i < isbn.length(); i++) {
+                hash ^= isbn.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.luiz.libraryapi.service.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process ISBN -> book id index. Reads are lock-free; writes keep the reverse
+ * map in sync so a book whose ISBN changes does not leave a stale entry behind.
+ */
+@Component
+public class IsbnIndex {
+
+    private final Map<String, Long> idsByIsbn = new ConcurrentHashMap<>();
+    private final Map<Long, String> isbnsById = new ConcurrentHashMap<>();
+
+    public Long getId(String isbn) {
+        return isbn == null ? null : idsByIsbn.get(isbn);
+    }
+
+    public String getIsbn(Long id) {
+        return id == null ? null : isbnsById.get(id);
+    }
+
+    public boolean contains(String isbn) {
+        return isbn != null && idsByIsbn.containsKey(isbn);
+    }
+
+    public synchronized void put(String isbn, Long id) {
+        if (isbn == null || id == null) {
+            return;
+        }
+        String previous = isbnsById.put(id, isbn);
+        if (previous != null && !previous.equals(isbn)) {
+            idsByIsbn.remove(previous, id);
+        }
+        idsByIsbn.put(isbn, id);
+    }
+
+    public synchronized void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        String isbn = isbnsById.remove(id);
+        if (isbn != null) {
+            idsByIsbn.remove(isbn, id);
+        }
+    }
+
+    public int size() {
+        return idsByIsbn.size();
+    }
+}
@@ -0,0 +1,177 @@
+package com.luiz.libraryapi.service.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted trigram index over one text column. A search intersects the posting lists of
+ * the term's trigrams, starting from the shortest, and confirms each candidate against
+ * the indexed text, so the returned ids are exact case-insensitive substring matches.
+ * Posting lists are sorted {@code long[]} arrays replaced copy-on-write by the writers, so
+ * searches read them without locking and intersect them with a linear merge.
+ */
+public class TrigramIndex {
+
+    static final int GRAM = 3;
+
+    private final Map<String, Postings> postings = new ConcurrentHashMap<>();
+    private final Map<Long, String> texts = new ConcurrentHashMap<>();
+
+    public synchronized void put(Long id, String text) {
+        remove(id);
+        if (text == null) {
+            return;
+        }
+        String normalized = normalize(text);
+        texts.put(id, normalized);
+        for (String gram : grams(normalized)) {
+            postings.put(gram, Postings.with(postings.get(gram), id));
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        String text = texts.remove(id);
+        if (text == null) {
+            return;
+        }
+        for (String gram : grams(text)) {
+            Postings ids = postings.get(gram);
+            if (ids != null) {
+                Postings rest = ids.without(id);
+                if (rest == null) {
+                    postings.remove(gram);
+                } else {
+                    postings.put(gram, rest);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return ids whose text contains the term, or {@code null} when the term is too short to be
+     * indexed or matches more than {@code limit} ids
+     */
+    public Set<Long> search(String term, int limit) {
+        if (term == null || term.length() < GRAM) {
+            return null;
+        }
+        String normalized = normalize(term);
+        List<Postings> lists = new ArrayList<>();
+        for (String gram : grams(normalized)) {
+            Postings ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(ids -> ids.size));
+
+        long[] candidates = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        int count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = intersect(candidates, count, lists.get(i));
+        }
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            String text = texts.get(candidates[i]);
+            if (text != null && text.contains(normalized) && result.add(candidates[i]) && result.size() > limit) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return texts.size();
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    // keeps in candidates[0, count) the ids also in other; both are sorted, so one merge pass suffices
+    private static int intersect(long[] candidates, int count, Postings other) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count && j < other.size; ) {
+            if (candidates[i] < other.ids[j]) {
+                i++;
+            } else if (candidates[i] > other.ids[j]) {
+                j++;
+            } else {
+                candidates[kept++] = candidates[i++];
+                j++;
+            }
+        }
+        return kept;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * Immutable view of the first {@code size} ids of a sorted array. An id greater than all
+     * others is written into the spare capacity past {@code size}, which no published view reads,
+     * so loading ids in ascending order does not copy the array each time.
+     */
+    private static final class Postings {
+
+        final long[] ids;
+        final int size;
+
+        Postings(long[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+
+        static Postings with(Postings current, long id) {
+            if (current == null) {
+                return new Postings(new long[]{id}, 1);
+            }
+            long[] ids = current.ids;
+            int size = current.size;
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at >= 0) {
+                return current;
+            }
+            at = -at - 1;
+            if (at == size && size < ids.length) {
+                ids[size] = id;
+                return new Postings(ids, size + 1);
+            }
+            long[] grown = new long[size + (size >> 2) + 1];
+            System.arraycopy(ids, 0, grown, 0, at);
+            grown[at] = id;
+            System.arraycopy(ids, at, grown, at + 1, size - at);
+            return new Postings(grown, size + 1);
+        }
+
+        // null when the id was the last one
+        Postings without(long id) {
+            int at = Arrays.binarySearch(ids, 0, size, id);
+            if (at < 0) {
+                return this;
+            }
+            if (size == 1) {
+                return null;
+            }
+            long[] rest = new long[size - 1];
+            System.arraycopy(ids, 0, rest, 0, at);
+            System.arraycopy(ids, at + 1, rest, at, size - at - 1);
+            return new Postings(rest, size - 1);
+        }
+    }
+}
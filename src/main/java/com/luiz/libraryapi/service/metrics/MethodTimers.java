@@ -0,0 +1,58 @@
+package com.luiz.libraryapi.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Mapping, validation and repository timers of a single method. They are registered once, when the
+ * owning bean is built, so recording on the request path is only a clock read and a bucket update.
+ */
+public class MethodTimers {
+
+    private final Timer mapping;
+    private final Timer validation;
+    private final Timer repository;
+
+    MethodTimers(MeterRegistry registry, String method) {
+        this.mapping = timer(registry, method, "mapping");
+        this.validation = timer(registry, method, "validation");
+        this.repository = timer(registry, method, "repository");
+    }
+
+    private static Timer timer(MeterRegistry registry, String method, String stage) {
+        return Timer.builder(StageTimers.METRIC_NAME)
+                .tag("method", method)
+                .tag("stage", stage)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(100_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    public <T> T mapping(Supplier<T> work) {
+        return mapping.record(work);
+    }
+
+    /**
+     * Times each call of {@code mapper}, for content that is mapped item by item while the response is written.
+     */
+    public <S, T> Function<S, T> mapping(Function<S, T> mapper) {
+        return item -> mapping.record(() -> mapper.apply(item));
+    }
+
+    public <T> T validation(Supplier<T> work) {
+        return validation.record(work);
+    }
+
+    public <T> T repository(Supplier<T> work) {
+        return repository.record(work);
+    }
+
+    public void repository(Runnable work) {
+        repository.record(work);
+    }
+}
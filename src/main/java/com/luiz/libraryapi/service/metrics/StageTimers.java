@@ -0,0 +1,24 @@
+package com.luiz.libraryapi.service.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hands out {@link MethodTimers} for controller and service methods. All of them publish to the
+ * {@code library.stage} timer, tagged with the method name and the stage being measured.
+ */
+@Component
+public class StageTimers {
+
+    public static final String METRIC_NAME = "library.stage";
+
+    private final MeterRegistry registry;
+
+    public StageTimers(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public MethodTimers forMethod(String method) {
+        return new MethodTimers(registry, method);
+    }
+}
@@ -1,11 +1,23 @@
 package com.luiz.libraryapi.api.resource;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.luiz.libraryapi.api.domain.Book;
 import com.luiz.libraryapi.api.dto.BookDTO;
+import com.luiz.libraryapi.api.dto.BookImportReport;
+import com.luiz.libraryapi.api.io.BookImportRow;
+import com.luiz.libraryapi.config.MessageConvertersConfig;
 import com.luiz.libraryapi.exception.BusinessException;
+import com.luiz.libraryapi.repository.BookKeyset;
+import com.luiz.libraryapi.service.BookExportService;
+import com.luiz.libraryapi.service.BookImportService;
 import com.luiz.libraryapi.service.BookService;
 import org.hamcrest.Matchers;
+import com.luiz.libraryapi.service.concurrent.RepositoryExecutor;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,26 +27,40 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.hasSize;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest(controllers = BookController.class)
+@Import({StageTimers.class, RepositoryExecutor.class, MessageConvertersConfig.class, SimpleMeterRegistry.class})
 @AutoConfigureMockMvc
 public class BookControllerTest {
 
@@ -43,9 +69,18 @@ public class BookControllerTest {
     @Autowired
     MockMvc mvc;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @MockBean
     BookService bookService;
 
+    @MockBean
+    BookImportService bookImportService;
+
+    @MockBean
+    BookExportService bookExportService;
+
     @Test
     @DisplayName("Deve criar um livro com sucesso.")
     public void createBookTeste() throws Exception {
@@ -59,7 +94,7 @@ public class BookControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
-        mvc.perform(request)
+        perform(request)
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("id").isNotEmpty())
                 .andExpect(jsonPath("tittle").value(dto.getTittle()))
@@ -77,7 +112,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        perform(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("errors", hasSize(3)));
 
@@ -97,7 +132,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        perform(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("errors", hasSize(1)))
                 .andExpect(jsonPath("errors[0]").value(mensagem));
@@ -127,8 +162,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON);
 
         //then
-        mvc
-                .perform(request)
+        perform(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("id").value(id))
                 .andExpect(jsonPath("tittle").value(createNewBook().getTittle()))
@@ -148,8 +182,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON);
 
         //then
-        mvc
-                .perform(request)
+        perform(request)
                 .andExpect(status().isNotFound());
     }
 
@@ -170,8 +203,7 @@ public class BookControllerTest {
 
 
         //then
-        mvc
-                .perform(request)
+        perform(request)
                 .andExpect(status().isNoContent());
 
     }
@@ -192,8 +224,7 @@ public class BookControllerTest {
                 .delete(BOOK_API.concat("/").concat(String.valueOf(1)))
                 .accept(MediaType.APPLICATION_JSON);
         //then
-        mvc
-                .perform(request)
+        perform(request)
                 .andExpect(status().isNotFound());
 
     }
@@ -216,8 +247,7 @@ public class BookControllerTest {
                 .accept(MediaType.APPLICATION_JSON)
                 .contentType(MediaType.APPLICATION_JSON);
         //then
-        mvc
-                .perform(request)
+        perform(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("id").value(updatingBook.getId()))
                 .andExpect(jsonPath("tittle").value(updatingBook.getTittle()))
@@ -240,7 +270,7 @@ public class BookControllerTest {
                 .content(json)
                 .accept(MediaType.APPLICATION_JSON);
         //then
-        mvc.perform(request).andExpect(status().isNotFound());
+        perform(request).andExpect(status().isNotFound());
     }
 
     @Test
@@ -257,19 +287,295 @@ public class BookControllerTest {
         BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.any(Pageable.class))).willReturn(new PageImpl<Book>(Arrays.asList(book), PageRequest.of(0, 100), 1));
 
         String queryString = String.format("?tittle=%s&author=%s&page=0&size=100", book.getTittle(), book.getAuthor());
+        long mappings = mappingCount("BookController.find");
 
         MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat(queryString))
                 .accept(MediaType.APPLICATION_JSON);
 
-        mvc.perform(request)
+        perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].isbn").value(book.getIsbn()))
+                .andExpect(jsonPath("offset").value(0))
+                .andExpect(jsonPath("total").value(1))
+                .andExpect(jsonPath("pageable").doesNotExist());
+        // the filter and the one book of the page
+        assertThat(mappingCount("BookController.find")).isEqualTo(mappings + 2);
+    }
+
+    @Test
+    @DisplayName("Deve importar livros em lote a partir de NDJSON reportando as linhas invalidas")
+    public void importNdjsonBooksTest() throws Exception {
+        BDDMockito.given(bookImportService.importBooks(Mockito.any())).willAnswer(invocation -> consume(invocation.getArgument(0)));
+        String body = "{\"tittle\":\"As aventuras\",\"author\":\"Arthur\",\"isbn\":\"001\"}\n"
+                + "{\"tittle\":\"Sem autor\",\"isbn\":\"002\"}\n"
+                + "{quebrado\n";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/batch"))
+                .contentType("application/x-ndjson")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(body);
+
+        perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(1))
+                .andExpect(jsonPath("rejected").value(2))
+                .andExpect(jsonPath("errors[0].line").value(2))
+                .andExpect(jsonPath("errors[0].message").value("author must not be empty"))
+                .andExpect(jsonPath("errors[1].line").value(3));
+    }
+
+    @Test
+    @DisplayName("Deve importar livros em lote a partir de CSV")
+    public void importCsvBooksTest() throws Exception {
+        BDDMockito.given(bookImportService.importBooks(Mockito.any())).willAnswer(invocation -> consume(invocation.getArgument(0)));
+        String body = "isbn,tittle,author\n"
+                + "001,\"As aventuras, parte 1\",Arthur\n"
+                + "002,As aventuras 2,Arthur\n";
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/batch"))
+                .contentType("text/csv")
+                .accept(MediaType.APPLICATION_JSON)
+                .content(body);
+
+        perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("imported").value(2))
+                .andExpect(jsonPath("rejected").value(0));
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro ao importar CSV sem as colunas obrigatorias no cabecalho")
+    public void importCsvWithoutHeaderTest() throws Exception {
+        BDDMockito.given(bookImportService.importBooks(Mockito.any())).willAnswer(invocation -> consume(invocation.getArgument(0)));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(BOOK_API.concat("/batch"))
+                .contentType("text/csv")
+                .accept(MediaType.APPLICATION_JSON)
+                .content("001,As aventuras,Arthur\n");
+
+        perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros por cursor retornando o token da proxima pagina")
+    public void findBooksByCursorTest() throws Exception {
+        Book book = Book.builder()
+                .id(7l)
+                .tittle(createNewBook().getTittle())
+                .author(createNewBook().getAuthor())
+                .isbn(createNewBook().getIsbn())
+                .build();
+
+        BDDMockito.given(bookService.findAfter(Mockito.any(Book.class), Mockito.eq(BookKeyset.first(Sort.by("tittle"))), Mockito.eq(1)))
+                .willReturn(new SliceImpl<>(Arrays.asList(book), PageRequest.of(0, 1), true));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?cursor=&size=1&sort=tittle&author=Arthur"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        perform(request)
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("content", Matchers.hasSize(1)))
-                .andExpect(jsonPath("totalElements").value(1))
-                .andExpect(jsonPath("pageable.pageSize").value(100))
-                .andExpect(jsonPath("pageable.pageNumber").value(0));
+                .andExpect(jsonPath("next").value(BookKeyset.first(Sort.by("tittle")).after(book).encode()))
+                .andExpect(jsonPath("total").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro ao receber um cursor invalido")
+    public void findBooksByInvalidCursorTest() throws Exception {
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(BOOK_API.concat("?cursor=invalido"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        perform(request)
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Invalid cursor"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catalogo em NDJSON")
+    public void exportNdjsonBooksTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras").author("Arthur").isbn("001").build();
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> sink = invocation.getArgument(0);
+            sink.accept(book);
+            return null;
+        }).given(bookExportService).exportBooks(Mockito.any());
+
+        perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-ndjson"))
+                .andExpect(content().string("{\"id\":1,\"tittle\":\"As aventuras\",\"author\":\"Arthur\",\"isbn\":\"001\"}\n"));
+    }
+
+    @Test
+    @DisplayName("Deve exportar o catalogo em CSV")
+    public void exportCsvBooksTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras, parte 1").author("Arthur").isbn("001").build();
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> sink = invocation.getArgument(0);
+            sink.accept(book);
+            return null;
+        }).given(bookExportService).exportBooks(Mockito.any());
+
+        perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=csv")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(content().string("id,tittle,author,isbn\n1,\"As aventuras, parte 1\",Arthur,001\n"));
+    }
+
+    @Test
+    @DisplayName("Deve reimportar um CSV exportado com titulo em varias linhas ou com espacos nas bordas")
+    public void exportCsvRoundTripTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras\n\"parte 1\"").author("Arthur").isbn("001").build();
+        BDDMockito.willAnswer(invocation -> {
+            Consumer<Book> sink = invocation.getArgument(0);
+            sink.accept(book);
+            sink.accept(Book.builder().id(2l).tittle("As aventuras 2").author("Arthur").isbn("002").build());
+            sink.accept(Book.builder().id(3l).tittle("  A volta  ").author("Arthur").isbn("003").build());
+            return null;
+        }).given(bookExportService).exportBooks(Mockito.any());
+        List<BookImportRow> imported = new ArrayList<>();
+        BDDMockito.given(bookImportService.importBooks(Mockito.any())).willAnswer(invocation -> {
+            Iterator<BookImportRow> rows = invocation.getArgument(0);
+            rows.forEachRemaining(imported::add);
+            return new BookImportReport();
+        });
+
+        String exported = perform(MockMvcRequestBuilders.get(BOOK_API.concat("/export?format=csv")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        perform(MockMvcRequestBuilders.post(BOOK_API.concat("/batch")).contentType("text/csv").content(exported))
+                .andExpect(status().isOk());
+
+        assertThat(imported).extracting(BookImportRow::getLine).containsExactly(2l, 4l, 5l);
+        assertThat(imported.get(0).getBook().getTittle()).isEqualTo(book.getTittle());
+        assertThat(imported.get(1).getBook().getIsbn()).isEqualTo("002");
+        assertThat(imported.get(2).getBook().getTittle()).isEqualTo("  A volta  ");
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 quando o ETag do livro nao mudou")
+    public void getBookNotModifiedTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras").author("Arthur").isbn("001").version(3l).build();
+        BDDMockito.given(bookService.getById(1l)).willReturn(Optional.of(book));
+
+        perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"1-3.json\""))
+                .andExpect(header().string("Vary", "Accept"));
+
+        perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).header("If-None-Match", "W/\"1-3.json\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"1-3.json\""))
+                .andExpect(content().string(""));
+    }
+
+    @Test
+    @DisplayName("Deve gerar um ETag por representacao negociada")
+    public void etagPerRepresentationTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras").author("Arthur").isbn("001").version(3l).build();
+        BDDMockito.given(bookService.getById(1l)).willReturn(Optional.of(book));
+        BDDMockito.given(bookService.update(Mockito.any(Book.class))).willAnswer(invocation -> invocation.getArgument(0));
+
+        perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept("application/cbor").header("If-None-Match", "W/\"1-3.json\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/cbor"))
+                .andExpect(header().string("ETag", "W/\"1-3.cbor\""))
+                .andExpect(header().string("Vary", "Accept"));
+
+        MockHttpServletRequestBuilder update = MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                .header("If-Match", "W/\"1-3.cbor\"")
+                .content(new ObjectMapper().writeValueAsString(createNewBook()))
+                .contentType(MediaType.APPLICATION_JSON);
+        perform(update)
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    @DisplayName("Deve retornar 304 quando a pagina de livros nao mudou e 200 quando uma versao mudou")
+    public void findBooksNotModifiedTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras").author("Arthur").isbn("001").version(0l).build();
+        BDDMockito.given(bookService.find(Mockito.any(Book.class), Mockito.any(Pageable.class)))
+                .willAnswer(invocation -> new PageImpl<>(Arrays.asList(book), invocation.getArgument(1), 1));
+
+        String etag = perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=10")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=10")).header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        book.setVersion(1l);
+        perform(MockMvcRequestBuilders.get(BOOK_API.concat("?page=0&size=10")).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", hasSize(1)));
+    }
+
+    @Test
+    @DisplayName("Deve retornar 412 ao atualizar um livro com If-Match desatualizado")
+    public void updateBookPreconditionFailedTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras").author("Arthur").isbn("001").version(2l).build();
+        BDDMockito.given(bookService.getById(1l)).willReturn(Optional.of(book));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.put(BOOK_API.concat("/1"))
+                .header("If-Match", "\"1-1\"")
+                .content(new ObjectMapper().writeValueAsString(createNewBook()))
+                .contentType(MediaType.APPLICATION_JSON);
+
+        perform(request)
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("errors[0]").value("Book was modified"));
+        Mockito.verify(bookService, Mockito.never()).update(Mockito.any(Book.class));
+    }
+
+    @Test
+    @DisplayName("Deve negociar CBOR e Smile pelo cabecalho Accept")
+    public void binaryFormatsTest() throws Exception {
+        Book book = Book.builder().id(1l).tittle("As aventuras").author("Arthur").isbn("001").version(0l).build();
+        BDDMockito.given(bookService.getById(1l)).willReturn(Optional.of(book));
+
+        byte[] cbor = perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept("application/cbor"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/cbor"))
+                .andReturn().getResponse().getContentAsByteArray();
+        byte[] smile = perform(MockMvcRequestBuilders.get(BOOK_API.concat("/1")).accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "application/x-jackson-smile"))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        BookDTO fromCbor = new ObjectMapper(new CBORFactory()).readValue(cbor, BookDTO.class);
+        BookDTO fromSmile = new ObjectMapper(new SmileFactory()).readValue(smile, BookDTO.class);
+        assertThat(fromCbor.getTittle()).isEqualTo("As aventuras");
+        assertThat(fromSmile.getIsbn()).isEqualTo("001");
+    }
+
+    private BookImportReport consume(Iterator<BookImportRow> rows) {
+        BookImportReport report = new BookImportReport();
+        rows.forEachRemaining(row -> {
+            if (row.isValid()) {
+                report.setImported(report.getImported() + 1);
+            } else {
+                report.addError(row.getLine(), null, row.getError());
+            }
+        });
+        return report;
     }
 
     private BookDTO createNewBook() {
         return BookDTO.builder().author("Arthur").tittle("As aventuras").isbn("001").build();
     }
+
+    private long mappingCount(String method) {
+        return meterRegistry.get(StageTimers.METRIC_NAME).tag("method", method).tag("stage", "mapping").timer().count();
+    }
+
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        // handlers hand repository work to the executor, so complete the async dispatch before asserting
+        ResultActions actions = mvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mvc.perform(MockMvcRequestBuilders.asyncDispatch(result)) : actions;
+    }
 }
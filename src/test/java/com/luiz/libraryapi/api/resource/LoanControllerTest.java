@@ -4,27 +4,47 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.luiz.libraryapi.api.domain.Book;
 import com.luiz.libraryapi.api.domain.Loan;
 import com.luiz.libraryapi.api.dto.LoanDTO;
+import com.luiz.libraryapi.api.dto.LoanFilterDTO;
+import com.luiz.libraryapi.api.dto.LoanReturnDTO;
+import com.luiz.libraryapi.api.dto.LoanReturnReport;
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
 import com.luiz.libraryapi.exception.BusinessException;
 import com.luiz.libraryapi.service.BookService;
 import com.luiz.libraryapi.service.LoanService;
+import com.luiz.libraryapi.service.OverdueLoanService;
+import com.luiz.libraryapi.service.concurrent.AdmissionControl;
+import com.luiz.libraryapi.service.concurrent.RepositoryExecutor;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Optional;
 
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -32,7 +52,10 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
 @WebMvcTest(controllers = LoanController.class)
+@Import({StageTimers.class, RepositoryExecutor.class, AdmissionControl.class, SimpleMeterRegistry.class})
 @AutoConfigureMockMvc
+// buckets live as long as the cached context, so every test that creates loans uses its own customer
+@TestPropertySource(properties = {"library.admission.rate-per-second=0.001", "library.admission.burst=5"})
 public class LoanControllerTest {
     static final String LOAN_API = "/api/loan";
 
@@ -45,6 +68,9 @@ public class LoanControllerTest {
     @MockBean
     LoanService loanService;
 
+    @MockBean
+    OverdueLoanService overdueLoanService;
+
 
     @Test
     @DisplayName("Deve realizar um emprestimo")
@@ -63,7 +89,7 @@ public class LoanControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        perform(request)
                 .andExpect(status().isCreated())
                 .andExpect(content().string("1"));
     }
@@ -71,7 +97,7 @@ public class LoanControllerTest {
     @Test
     @DisplayName("Deve retornar erro ao tentar fazer emprestimo de um livro inexistente.")
     public void invalidIsbnCreateLoanTest() throws Exception {
-        LoanDTO dto = LoanDTO.builder().isbn("123").customer("Fulano").build();
+        LoanDTO dto = LoanDTO.builder().isbn("123").customer("Beltrano").build();
         String json = new  ObjectMapper().writeValueAsString(dto);
 
         BDDMockito.given(bookService.getBookByIsbn("123"))
@@ -82,7 +108,7 @@ public class LoanControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        perform(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("errors", Matchers.hasSize(1)))
                 .andExpect(jsonPath("errors[0]").value("Book not found for passed isbn"));
@@ -93,7 +119,7 @@ public class LoanControllerTest {
     @DisplayName("Deve retornar erro ao tentar fazer emprestimo de um livro emprestado.")
     public void loanedBookErrorOnCreatedLoanTest() throws Exception {
 
-        LoanDTO dto = LoanDTO.builder().isbn("123").customer("Fulano").build();
+        LoanDTO dto = LoanDTO.builder().isbn("123").customer("Sicrano").build();
         String json = new  ObjectMapper().writeValueAsString(dto);
 
         BDDMockito.given(bookService.getBookByIsbn("123"))
@@ -107,11 +133,112 @@ public class LoanControllerTest {
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(json);
 
-        mvc.perform(request)
+        perform(request)
                 .andExpect(status().isBadRequest())
                 .andExpect(jsonPath("errors", Matchers.hasSize(1)))
                 .andExpect(jsonPath("errors[0]").value("Book already loaned"));
 
     }
 
+    @Test
+    @DisplayName("Deve recusar com 429 os emprestimos de um cliente que esgotou sua cota")
+    public void rateLimitedCreateLoanTest() throws Exception {
+        String json = new ObjectMapper().writeValueAsString(LoanDTO.builder().isbn("123").customer("Ciclano").build());
+        BDDMockito.given(bookService.getBookByIsbn("123"))
+                .willReturn(Optional.of(Book.builder().id(1l).isbn("123").build()));
+        BDDMockito.given(loanService.save(Mockito.any(Loan.class)))
+                .willReturn(Loan.builder().id(1l).customer("Ciclano").build());
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.post(LOAN_API)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json);
+
+        for (int i = 0; i < 5; i++) {
+            perform(request).andExpect(status().isCreated());
+        }
+        perform(request)
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().exists("Retry-After"))
+                .andExpect(jsonPath("errors[0]").value("Too many loan requests for this customer, try again later"));
+
+        Mockito.verify(loanService, Mockito.times(5)).save(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve listar emprestimos filtrando por cliente")
+    public void findLoansTest() throws Exception {
+        LoanSummaryDTO summary = LoanSummaryDTO.builder().id(1l).customer("Fulano").isbn("123")
+                .loanDate(LocalDate.now()).returned(false).bookId(1l).bookTittle("As aventuras").build();
+        BDDMockito.given(loanService.find(Mockito.any(LoanFilterDTO.class), Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(Arrays.asList(summary), PageRequest.of(0, 10), 1));
+
+        MockHttpServletRequestBuilder request = MockMvcRequestBuilders.get(LOAN_API.concat("?customer=Fulano&page=0&size=10"))
+                .accept(MediaType.APPLICATION_JSON);
+
+        perform(request)
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].bookTittle").value("As aventuras"))
+                .andExpect(jsonPath("totalElements").value(1));
+
+        ArgumentCaptor<LoanFilterDTO> filter = ArgumentCaptor.forClass(LoanFilterDTO.class);
+        Mockito.verify(loanService).find(filter.capture(), Mockito.any(Pageable.class));
+        Assertions.assertThat(filter.getValue().getCustomer()).isEqualTo("Fulano");
+    }
+
+    @Test
+    @DisplayName("Deve listar os emprestimos atrasados encontrados pela varredura")
+    public void findOverdueLoansTest() throws Exception {
+        LoanSummaryDTO summary = LoanSummaryDTO.builder().id(1l).customer("Fulano").isbn("123")
+                .loanDate(LocalDate.now().minusDays(5)).returned(false).build();
+        BDDMockito.given(overdueLoanService.find(Mockito.any(Pageable.class)))
+                .willReturn(new PageImpl<>(Arrays.asList(summary), PageRequest.of(0, 20), 1));
+
+        perform(MockMvcRequestBuilders.get(LOAN_API.concat("/overdue")).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("content", Matchers.hasSize(1)))
+                .andExpect(jsonPath("content[0].customer").value("Fulano"));
+    }
+
+    @Test
+    @DisplayName("Deve devolver emprestimos em lote informando o resultado de cada item")
+    public void returnLoansTest() throws Exception {
+        LoanReturnReport report = new LoanReturnReport();
+        report.add(1l, "123", LoanReturnReport.Status.RETURNED);
+        report.add(null, "456", LoanReturnReport.Status.NOT_FOUND);
+        BDDMockito.given(loanService.returnLoans(Arrays.asList(1l), Arrays.asList("456"))).willReturn(report);
+        String json = new ObjectMapper().writeValueAsString(
+                LoanReturnDTO.builder().ids(Arrays.asList(1l)).isbns(Arrays.asList("456")).build());
+
+        perform(MockMvcRequestBuilders.patch(LOAN_API.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(json))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("returned").value(1))
+                .andExpect(jsonPath("items", Matchers.hasSize(2)))
+                .andExpect(jsonPath("items[1].status").value("NOT_FOUND"));
+
+        Mockito.verify(overdueLoanService).remove(Arrays.asList(1l));
+    }
+
+    @Test
+    @DisplayName("Deve retornar erro ao devolver sem informar emprestimos")
+    public void returnLoansWithoutItemsTest() throws Exception {
+        perform(MockMvcRequestBuilders.patch(LOAN_API.concat("/returns"))
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("errors[0]").value("Inform loan ids or isbns to return"));
+
+        Mockito.verifyNoInteractions(loanService);
+    }
+
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        // handlers hand repository work to the executor, so complete the async dispatch before asserting
+        ResultActions actions = mvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mvc.perform(MockMvcRequestBuilders.asyncDispatch(result)) : actions;
+    }
 }
@@ -0,0 +1,56 @@
+package com.luiz.libraryapi.api.resource;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.service.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:compression;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.scheduling.enabled=false"
+})
+@DirtiesContext
+public class ResponseCompressionTest {
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    BookService bookService;
+
+    @Test
+    @DisplayName("Deve compactar com gzip a listagem de livros que carrega ETag")
+    public void gzipBookPageTest() throws Exception {
+        for (int i = 0; i < 40; i++) {
+            bookService.save(Book.builder().isbn("gzip-" + i).author("Autor " + i).tittle("As aventuras, volume " + i).build());
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books?size=40"))
+                .header("Accept", "application/json")
+                .header("Accept-Encoding", "gzip")
+                .build();
+
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.headers().firstValue("ETag")).hasValueSatisfying(etag -> assertThat(etag).startsWith("W/"));
+        assertThat(response.headers().firstValue("Content-Encoding")).contains("gzip");
+        JsonNode page = new ObjectMapper().readTree(new GZIPInputStream(new ByteArrayInputStream(response.body())));
+        assertThat(page.get("content").size()).isEqualTo(40);
+    }
+}
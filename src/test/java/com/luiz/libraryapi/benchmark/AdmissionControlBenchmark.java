@@ -0,0 +1,58 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.luiz.libraryapi.service.concurrent.AdmissionControl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the admission check on the loan hot path: acquire and release for a random customer out of
+ * {@code customers}, with limits high enough that nothing is rejected. {@code baseline} only picks the customer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class AdmissionControlBenchmark {
+
+    @Param({"10000"})
+    int customers;
+
+    AdmissionControl admissionControl;
+    String[] names;
+
+    @Setup
+    public void setUp() {
+        admissionControl = new AdmissionControl(true, 1_000_000, 1_000_000_000, 1_000_000, customers,
+                new SimpleMeterRegistry());
+        names = new String[customers];
+        for (int i = 0; i < customers; i++) {
+            names[i] = "customer-" + i;
+        }
+    }
+
+    @Benchmark
+    public String baseline() {
+        return names[ThreadLocalRandom.current().nextInt(customers)];
+    }
+
+    @Benchmark
+    public String acquireAndRelease() {
+        String customer = names[ThreadLocalRandom.current().nextInt(customers)];
+        admissionControl.acquire(customer);
+        admissionControl.release();
+        return customer;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(AdmissionControlBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,76 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BookServiceImpl save, getById and find against an embedded H2 catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookServiceBenchmark {
+
+    @Param({"10000"})
+    int books;
+
+    ConfigurableApplicationContext context;
+    BookService bookService;
+    Long[] ids;
+    AtomicLong nextIsbn;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        bookService = context.getBean(BookService.class);
+        ids = new Long[books];
+        for (int i = 0; i < books; i++) {
+            ids[i] = bookService.save(newBook(i)).getId();
+        }
+        nextIsbn = new AtomicLong(books);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Book save() {
+        return bookService.save(newBook(nextIsbn.getAndIncrement()));
+    }
+
+    @Benchmark
+    public Optional<Book> getById() {
+        return bookService.getById(ids[ThreadLocalRandom.current().nextInt(books)]);
+    }
+
+    @Benchmark
+    public Page<Book> find() {
+        Book filter = Book.builder().tittle("tittle " + ThreadLocalRandom.current().nextInt(100)).build();
+        return bookService.find(filter, PageRequest.of(0, 20));
+    }
+
+    private static Book newBook(long i) {
+        return Book.builder().isbn("isbn-" + i).author("author " + i).tittle("tittle " + i).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(BookServiceBenchmark.class.getSimpleName()).build()).run();
+    }
+}
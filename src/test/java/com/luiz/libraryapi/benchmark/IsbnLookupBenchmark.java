@@ -0,0 +1,83 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.repository.BookRepository;
+import com.luiz.libraryapi.service.BookService;
+import com.luiz.libraryapi.service.index.IsbnIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ISBN lookups served by the in-process index against the repository-only path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IsbnLookupBenchmark {
+
+    @Param({"10000"})
+    int books;
+
+    ConfigurableApplicationContext context;
+    BookService bookService;
+    BookRepository bookRepository;
+    IsbnIndex isbnIndex;
+
+    @Setup
+    public void setUp() {
+        context = BenchmarkContext.start();
+        bookService = context.getBean(BookService.class);
+        bookRepository = context.getBean(BookRepository.class);
+        isbnIndex = context.getBean(IsbnIndex.class);
+        for (int i = 0; i < books; i++) {
+            bookService.save(Book.builder().isbn(isbn(i)).author("author " + i).tittle("tittle " + i).build());
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<Book> indexedLookup() {
+        return bookService.getBookByIsbn(randomIsbn());
+    }
+
+    @Benchmark
+    public Optional<Book> repositoryLookup() {
+        return bookRepository.findByIsbn(randomIsbn());
+    }
+
+    @Benchmark
+    public boolean indexedDuplicateCheck() {
+        return isbnIndex.contains(randomIsbn());
+    }
+
+    @Benchmark
+    public boolean repositoryDuplicateCheck() {
+        return bookRepository.existsByIsbn(randomIsbn());
+    }
+
+    private String randomIsbn() {
+        return isbn(ThreadLocalRandom.current().nextInt(books));
+    }
+
+    private static String isbn(int i) {
+        return String.format("978-%09d", i);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(IsbnLookupBenchmark.class.getSimpleName()).build()).run();
+    }
+}
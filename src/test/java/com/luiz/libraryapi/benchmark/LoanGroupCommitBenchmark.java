@@ -0,0 +1,66 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.service.LoanService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Loan inserts from 16 threads against a file-backed H2 database, with one transaction per loan
+ * and with the group-commit write path batching concurrent inserts into shared transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class LoanGroupCommitBenchmark {
+
+    @Param({"false", "true"})
+    boolean groupCommit;
+
+    ConfigurableApplicationContext context;
+    LoanService loanService;
+    Path directory;
+    AtomicLong nextIsbn = new AtomicLong();
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("loan-group-commit");
+        context = BenchmarkContext.start(
+                "spring.datasource.url=jdbc:h2:file:" + directory.resolve("library"),
+                "library.loan.group-commit.enabled=" + groupCommit,
+                "library.scheduling.enabled=false");
+        loanService = context.getBean(LoanService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Loan createLoan() {
+        return loanService.save(Loan.builder()
+                .isbn("isbn-" + nextIsbn.incrementAndGet())
+                .customer("customer")
+                .loanDate(LocalDate.now())
+                .build());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LoanGroupCommitBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,78 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.luiz.libraryapi.service.concurrent.StripedLocks;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Loan-creation throughput under 8 threads with the per-ISBN striped locks used by LoanImpl
+ * against a single global lock, on one hot ISBN and on a uniform spread of ISBNs. The critical
+ * section burns a fixed amount of CPU standing in for the availability check and insert.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class LoanLockingBenchmark {
+
+    @Param({"hot", "uniform"})
+    String distribution;
+
+    @Param({"2000"})
+    int criticalSectionTokens;
+
+    StripedLocks stripedLocks;
+    Lock globalLock;
+    String[] isbns;
+
+    @Setup
+    public void setUp() {
+        stripedLocks = new StripedLocks(256);
+        globalLock = new ReentrantLock();
+        isbns = new String[10_000];
+        for (int i = 0; i < isbns.length; i++) {
+            isbns[i] = String.format("978-%09d", i);
+        }
+    }
+
+    private String nextIsbn() {
+        return "hot".equals(distribution) ? isbns[0] : isbns[ThreadLocalRandom.current().nextInt(isbns.length)];
+    }
+
+    @Benchmark
+    public void stripedLock() {
+        Lock lock = stripedLocks.get(nextIsbn());
+        lock.lock();
+        try {
+            Blackhole.consumeCPU(criticalSectionTokens);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Benchmark
+    public void globalLock() {
+        nextIsbn();
+        globalLock.lock();
+        try {
+            Blackhole.consumeCPU(criticalSectionTokens);
+        } finally {
+            globalLock.unlock();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(LoanLockingBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,101 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.config.ReadReplicaConfig;
+import com.luiz.libraryapi.service.BookService;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mixed BookService traffic, 12 reader threads running find and 4 writer threads running save, with a
+ * 4-connection primary pool. Without the replica the readers queue for the same pool as the writers;
+ * with it they run on a second embedded H2 database seeded from the primary.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadReplicaBenchmark {
+
+    @Param({"false", "true"})
+    boolean replica;
+
+    @Param({"10000"})
+    int books;
+
+    ConfigurableApplicationContext context;
+    BookService bookService;
+    AtomicLong nextIsbn;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = BenchmarkContext.start(
+                "spring.datasource.hikari.maximum-pool-size=4",
+                "library.datasource.replica.enabled=" + replica,
+                "library.datasource.replica.jdbc-url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "library.datasource.replica.maximum-pool-size=12",
+                "library.scheduling.enabled=false");
+        bookService = context.getBean(BookService.class);
+        for (int i = 0; i < books; i++) {
+            bookService.save(newBook(i));
+        }
+        nextIsbn = new AtomicLong(books);
+        if (replica) {
+            seedReplica(context.getBean(ReadReplicaConfig.RoutingDataSourceProxy.class));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(12)
+    public Page<Book> find() {
+        Book filter = Book.builder().tittle("tittle " + ThreadLocalRandom.current().nextInt(100)).build();
+        return bookService.find(filter, PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public Book save() {
+        return bookService.save(newBook(nextIsbn.getAndIncrement()));
+    }
+
+    private static void seedReplica(ReadReplicaConfig.RoutingDataSourceProxy dataSource) throws IOException {
+        Path script = Files.createTempFile("primary", ".sql");
+        try {
+            new JdbcTemplate(dataSource.getRouter().getPrimary()).execute("script to '" + script + "'");
+            new JdbcTemplate(dataSource.getRouter().getReplica()).execute("runscript from '" + script + "'");
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+
+    private static Book newBook(long i) {
+        return Book.builder().isbn("isbn-" + i).author("author " + i).tittle("tittle " + i).build();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ReadReplicaBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,111 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.api.dto.BookDTO;
+import com.luiz.libraryapi.api.dto.PageResponse;
+import com.luiz.libraryapi.api.exception.ApiErrors.ApiErrors;
+import com.luiz.libraryapi.api.mapper.BookMapper;
+import com.luiz.libraryapi.exception.BusinessException;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Jackson serialization of a BookDTO page and construction of the ApiErrors bodies
+ * returned by ApplicationControllerAdvice. The body benchmarks compare the two ways BookController.find
+ * has produced a page body from the repository result: mapping into a PageImpl, and the PageResponse
+ * envelope.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"20", "100"})
+    int pageSize;
+
+    ObjectMapper objectMapper;
+    Page<BookDTO> page;
+    Page<Book> books;
+    BookMapper bookMapper = new BookMapper();
+    BindingResult bindingResult;
+    BusinessException businessException;
+    ResponseStatusException responseStatusException;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        List<BookDTO> content = new ArrayList<>(pageSize);
+        for (int i = 0; i < pageSize; i++) {
+            content.add(new BookDTO((long) i, "tittle " + i, "author " + i, "isbn-" + i));
+        }
+        page = new PageImpl<>(content, PageRequest.of(0, pageSize), 10_000);
+        books = new PageImpl<>(content.stream().map(bookMapper::toEntity).collect(Collectors.toList()), PageRequest.of(0, pageSize), 10_000);
+
+        bindingResult = new BeanPropertyBindingResult(new BookDTO(), "bookDTO");
+        bindingResult.rejectValue("tittle", "NotEmpty", "must not be empty");
+        bindingResult.rejectValue("author", "NotEmpty", "must not be empty");
+        bindingResult.rejectValue("isbn", "NotEmpty", "must not be empty");
+        businessException = new BusinessException("Isbn já Cadastrado");
+        responseStatusException = new ResponseStatusException(HttpStatus.BAD_REQUEST, "Book not found for passed isbn");
+    }
+
+    @Benchmark
+    public byte[] serializeBookPage() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] pageImplBody() throws JsonProcessingException {
+        List<BookDTO> list = books.getContent().stream().map(bookMapper::toDto).collect(Collectors.toList());
+        return objectMapper.writeValueAsBytes(new PageImpl<>(list, books.getPageable(), books.getTotalElements()));
+    }
+
+    @Benchmark
+    public byte[] pageResponseBody() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(PageResponse.of(books, bookMapper::toDto));
+    }
+
+    @Benchmark
+    public ApiErrors validationErrors() {
+        return new ApiErrors(bindingResult);
+    }
+
+    @Benchmark
+    public ApiErrors businessError() {
+        return new ApiErrors(businessException);
+    }
+
+    @Benchmark
+    public ApiErrors responseStatusError() {
+        return new ApiErrors(responseStatusException);
+    }
+
+    @Benchmark
+    public byte[] serializeValidationErrors() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(new ApiErrors(bindingResult));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(ResponseSerializationBenchmark.class.getSimpleName()).build()).run();
+    }
+}
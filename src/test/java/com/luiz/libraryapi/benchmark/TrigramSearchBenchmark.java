@@ -0,0 +1,87 @@
+package com.luiz.libraryapi.benchmark;
+
+import com.luiz.libraryapi.service.index.TrigramIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling curve of a substring search resolved through the trigram index against a linear
+ * scan over the same titles, which is what lower(tittle) like '%term%' costs the database.
+ * Titles are three words drawn from a generated vocabulary, so a word matches roughly
+ * 3 * books / VOCABULARY titles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class TrigramSearchBenchmark {
+
+    private static final int VOCABULARY = 50_000;
+    private static final String[] SYLLABLES = {"ba", "ce", "di", "fo", "gu", "la", "me", "ni", "po", "ru", "sa",
+            "te", "vi", "xo", "za", "bra", "cle", "dri", "flo", "gro", "pla", "tre", "an", "or", "is"};
+    private static final int MAX_CANDIDATES = 1000;
+
+    @Param({"10000", "100000", "1000000"})
+    int books;
+
+    TrigramIndex index;
+    String[] titles;
+    String[] words;
+    int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        words = new String[VOCABULARY];
+        for (int i = 0; i < VOCABULARY; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int s = 0; s < 3 + random.nextInt(2); s++) {
+                word.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            words[i] = word.toString();
+        }
+        index = new TrigramIndex();
+        titles = new String[books];
+        for (int i = 0; i < books; i++) {
+            String title = words[random.nextInt(VOCABULARY)] + " " + words[random.nextInt(VOCABULARY)]
+                    + " " + words[random.nextInt(VOCABULARY)];
+            titles[i] = title.toLowerCase(Locale.ROOT);
+            index.put((long) i, title);
+        }
+    }
+
+    private String nextTerm() {
+        next = (next + 7919) % VOCABULARY;
+        return words[next];
+    }
+
+    @Benchmark
+    public Set<Long> trigramIndex() {
+        return index.search(nextTerm(), MAX_CANDIDATES);
+    }
+
+    @Benchmark
+    public int linearScan() {
+        String normalized = nextTerm().toLowerCase(Locale.ROOT);
+        int matches = 0;
+        for (String title : titles) {
+            if (title.contains(normalized)) {
+                matches++;
+            }
+        }
+        return matches;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(TrigramSearchBenchmark.class.getSimpleName()).build()).run();
+    }
+}
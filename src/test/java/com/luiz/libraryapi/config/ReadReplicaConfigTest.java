@@ -0,0 +1,96 @@
+package com.luiz.libraryapi.config;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.service.BookService;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:primary;DB_CLOSE_DELAY=-1",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "library.datasource.replica.enabled=true",
+        "library.datasource.replica.jdbc-url=jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1",
+        "library.datasource.replica.retry-interval=1h",
+        "library.scheduling.enabled=false"
+})
+@DirtiesContext
+public class ReadReplicaConfigTest {
+
+    @Autowired
+    BookService bookService;
+
+    @Autowired
+    ReadReplicaConfig.RoutingDataSourceProxy dataSource;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Deve ler livros da replica, gravar no primario e voltar ao primario quando a replica cair")
+    public void routingTest() throws IOException {
+        DataSource primaryDataSource = dataSource.getRouter().getPrimary();
+        HikariDataSource replicaDataSource = (HikariDataSource) dataSource.getRouter().getReplica();
+        Book saved = bookService.save(Book.builder().isbn("123").author("fulana").tittle("Primario").build());
+        copyPrimaryToReplica(primaryDataSource, replicaDataSource);
+        new JdbcTemplate(replicaDataSource).update("update book set tittle = 'Replica' where id = ?", saved.getId());
+        entityManagerFactory.getCache().evictAll();
+
+        assertThat(bookService.getById(saved.getId()).get().getTittle()).isEqualTo("Replica");
+        assertThat(bookService.find(new Book(), PageRequest.of(0, 10)).getContent())
+                .extracting(Book::getTittle).containsExactly("Replica");
+        assertThat(new JdbcTemplate(primaryDataSource)
+                .queryForObject("select tittle from book where id = ?", String.class, saved.getId()))
+                .isEqualTo("Primario");
+
+        replicaDataSource.close();
+        entityManagerFactory.getCache().evictAll();
+
+        assertThat(bookService.getById(saved.getId()).get().getTittle()).isEqualTo("Primario");
+        assertThat(dataSource.getRouter().replicaAvailable()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve recusar a replica sem URL propria")
+    public void replicaUrlRequiredTest() {
+        DataSourceProperties properties = new DataSourceProperties();
+        properties.setUrl("jdbc:h2:mem:primary");
+        HikariConfig samePrimary = new HikariConfig();
+        samePrimary.setJdbcUrl("jdbc:h2:mem:primary");
+
+        assertThatThrownBy(() -> new ReadReplicaConfig().dataSource(properties, new HikariConfig(), new HikariConfig(), null, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("jdbc-url must be set");
+        assertThatThrownBy(() -> new ReadReplicaConfig().dataSource(properties, new HikariConfig(), samePrimary, null, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("points at the primary");
+    }
+
+    // stands in for replication: the replica starts as a copy of the primary's schema and rows
+    private void copyPrimaryToReplica(DataSource primaryDataSource, DataSource replicaDataSource) throws IOException {
+        Path script = Files.createTempFile("primary", ".sql");
+        try {
+            new JdbcTemplate(primaryDataSource).execute("script to '" + script + "'");
+            new JdbcTemplate(replicaDataSource).execute("runscript from '" + script + "'");
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.luiz.libraryapi.performance;
+
+import com.luiz.libraryapi.LibraryApiApplication;
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.service.BookService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fires a burst of slow book lookups at a server limited to a handful of Tomcat threads, once with
+ * the repository work running inline and once offloaded to the repository executor.
+ * Run with {@code ./mvnw -P performance test}.
+ */
+@Tag("performance")
+public class AsyncExecutionLoadTest {
+
+    static final int TOMCAT_THREADS = 4;
+    static final int REQUESTS = 64;
+    static final long LOOKUP_MILLIS = 100;
+
+    @Test
+    @DisplayName("Deve atender mais requisicoes simultaneas com o mesmo numero de threads do Tomcat")
+    public void asyncExecutionRaisesConcurrencyTest() throws Exception {
+        Result blocking = run(false);
+        Result async = run(true);
+
+        System.out.printf("blocking: peak %d in flight, %d ms%n", blocking.peak, blocking.millis);
+        System.out.printf("async:    peak %d in flight, %d ms%n", async.peak, async.millis);
+
+        assertThat(blocking.peak).isLessThanOrEqualTo(TOMCAT_THREADS);
+        assertThat(async.peak).isGreaterThan(TOMCAT_THREADS * 2);
+        assertThat(async.millis).isLessThan(blocking.millis / 2);
+    }
+
+    private Result run(boolean async) throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class, SlowLookupConfig.class)
+                .logStartupInfo(false)
+                .profiles("slow-lookup")
+                .run("--server.port=0",
+                        "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+                        "--server.tomcat.threads.min-spare=" + TOMCAT_THREADS,
+                        "--library.async.enabled=" + async,
+                        "--library.async.threads=32",
+                        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            InFlight inFlight = context.getBean(InFlight.class);
+            HttpClient client = HttpClient.newHttpClient();
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books/1")).build();
+
+            long start = System.nanoTime();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < REQUESTS; i++) {
+                responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+            }
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                assertThat(response.get().statusCode()).isEqualTo(200);
+            }
+            return new Result(inFlight.peak.get(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    static class Result {
+        final int peak;
+        final long millis;
+
+        Result(int peak, long millis) {
+            this.peak = peak;
+            this.millis = millis;
+        }
+    }
+
+    static class InFlight {
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger peak = new AtomicInteger();
+    }
+
+    // profiled so that component scanning does not replace BookService in other applications started from the test classpath
+    @Configuration
+    @Profile("slow-lookup")
+    static class SlowLookupConfig {
+
+        @Bean
+        InFlight inFlight() {
+            return new InFlight();
+        }
+
+        @Bean
+        @Primary
+        BookService slowBookService(InFlight inFlight) {
+            BookService bookService = Mockito.mock(BookService.class);
+            Mockito.when(bookService.getById(Mockito.anyLong())).thenAnswer(invocation -> {
+                inFlight.peak.accumulateAndGet(inFlight.current.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(LOOKUP_MILLIS);
+                } finally {
+                    inFlight.current.decrementAndGet();
+                }
+                return Optional.of(Book.builder().id(invocation.getArgument(0)).isbn("123").author("Fulano").tittle("As aventuras").build());
+            });
+            return bookService;
+        }
+    }
+}
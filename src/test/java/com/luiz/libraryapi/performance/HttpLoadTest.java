@@ -0,0 +1,232 @@
+package com.luiz.libraryapi.performance;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.luiz.libraryapi.LibraryApiApplication;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Open-loop HTTP load against the real application on a random port with an in-memory H2 database.
+ * Requests are issued on a fixed schedule of mixed create, get, find and loan calls. Each latency is
+ * measured from the request's scheduled send time, so a stalled server cannot hide its queueing delay
+ * (coordinated omission). The test fails when any operation's p99, the error count, or the achieved
+ * throughput misses its threshold. Percentile distributions are written to {@code target/load-test}.
+ * <p>
+ * Run with {@code ./mvnw -P performance test -Dtest=HttpLoadTest}, tuning with {@code -Dload.rate},
+ * {@code -Dload.duration-seconds}, {@code -Dload.warmup-seconds}, {@code -Dload.p99-ms} and
+ * {@code -Dload.min-throughput-ratio}.
+ */
+@Tag("performance")
+public class HttpLoadTest {
+
+    static final int RATE = Integer.getInteger("load.rate", 100);
+    static final int DURATION_SECONDS = Integer.getInteger("load.duration-seconds", 20);
+    static final int WARMUP_SECONDS = Integer.getInteger("load.warmup-seconds", 5);
+    static final long P99_MILLIS = Long.getLong("load.p99-ms", 250);
+    static final double MIN_THROUGHPUT_RATIO = Double.parseDouble(System.getProperty("load.min-throughput-ratio", "0.95"));
+    static final int SEEDED_BOOKS = 2000;
+
+    enum Operation {
+        CREATE(10), GET(50), FIND(25), LOAN(15);
+
+        final int weight;
+
+        Operation(int weight) {
+            this.weight = weight;
+        }
+
+        static Operation pick() {
+            int roll = ThreadLocalRandom.current().nextInt(100);
+            for (Operation operation : values()) {
+                roll -= operation.weight;
+                if (roll < 0) {
+                    return operation;
+                }
+            }
+            return GET;
+        }
+    }
+
+    ObjectMapper objectMapper = new ObjectMapper();
+    HttpClient client;
+    String baseUrl;
+    AtomicLong nextIsbn = new AtomicLong();
+    AtomicInteger nextLoan = new AtomicInteger();
+    List<Long> bookIds = new ArrayList<>();
+    List<String> loanableIsbns = new ArrayList<>();
+
+    @Test
+    @DisplayName("Deve sustentar a taxa configurada de trafego misto dentro do p99 definido")
+    public void mixedTrafficTest() throws Exception {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(LibraryApiApplication.class)
+                .logStartupInfo(false)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--library.scheduling.enabled=false",
+                        "--logging.level.root=WARN")) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            baseUrl = "http://localhost:" + port + "/api";
+            client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            seed();
+
+            run(WARMUP_SECONDS);
+            Result result = run(DURATION_SECONDS);
+            report(result);
+
+            double throughput = (double) result.completed / DURATION_SECONDS;
+            assertThat(result.errors.get()).as("failed requests").isZero();
+            assertThat(throughput).as("requests per second").isGreaterThanOrEqualTo(RATE * MIN_THROUGHPUT_RATIO);
+            for (Map.Entry<Operation, Histogram> latency : result.latencies.entrySet()) {
+                assertThat(TimeUnit.MICROSECONDS.toMillis(latency.getValue().getValueAtPercentile(99)))
+                        .as("p99 of %s in ms", latency.getKey())
+                        .isLessThanOrEqualTo(P99_MILLIS);
+            }
+        }
+    }
+
+    private void seed() throws Exception {
+        for (int i = 0; i < SEEDED_BOOKS; i++) {
+            String isbn = "seed-" + i;
+            HttpResponse<String> response = client.send(createBook(isbn), HttpResponse.BodyHandlers.ofString());
+            assertThat(response.statusCode()).isEqualTo(201);
+            bookIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+            loanableIsbns.add(isbn);
+        }
+    }
+
+    private Result run(int seconds) throws InterruptedException {
+        // open loop: request i is due at start + i * interval whether or not earlier ones have answered
+        Result result = new Result();
+        long interval = TimeUnit.SECONDS.toNanos(1) / RATE;
+        long total = (long) RATE * seconds;
+        List<CompletableFuture<?>> inFlight = new ArrayList<>();
+        long start = System.nanoTime();
+        for (long i = 0; i < total; i++) {
+            long due = start + i * interval;
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = Operation.pick();
+            HttpRequest request = request(operation);
+            if (request == null) {
+                operation = Operation.GET;
+                request = request(operation);
+            }
+            Operation recorded = operation;
+            int expected = operation == Operation.CREATE || operation == Operation.LOAN ? 201 : 200;
+            inFlight.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, ex) -> {
+                        result.latencies.get(recorded).recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - due));
+                        if (ex != null || response.statusCode() != expected) {
+                            result.errors.incrementAndGet();
+                        }
+                    }));
+        }
+        for (CompletableFuture<?> request : inFlight) {
+            try {
+                request.join();
+            } catch (RuntimeException ignored) {
+                // already counted as an error
+            }
+        }
+        result.completed = inFlight.size() - result.errors.get();
+        result.elapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    private HttpRequest request(Operation operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case CREATE:
+                return createBook("load-" + nextIsbn.incrementAndGet());
+            case GET:
+                return get("/books/" + bookIds.get(random.nextInt(bookIds.size())));
+            case FIND:
+                return get("/books?tittle=Livro%20" + random.nextInt(100) + "&page=0&size=10");
+            default:
+                int loan = nextLoan.getAndIncrement();
+                if (loan >= loanableIsbns.size()) {
+                    return null;
+                }
+                return post("/loan", "{\"isbn\":\"" + loanableIsbns.get(loan) + "\",\"customer\":\"customer-" + (loan % 500) + "\"}");
+        }
+    }
+
+    private HttpRequest createBook(String isbn) {
+        return post("/books", "{\"tittle\":\"Livro " + isbn.hashCode() % 1000 + "\",\"author\":\"Autor\",\"isbn\":\"" + isbn + "\"}");
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Accept", "application/json").build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private void report(Result result) throws IOException {
+        Path directory = Paths.get("target", "load-test");
+        Files.createDirectories(directory);
+        System.out.printf("%d req/s target, %.1f req/s achieved, %d errors%n",
+                RATE, result.completed * 1e9 / result.elapsedNanos, result.errors.get());
+        for (Map.Entry<Operation, Histogram> latency : result.latencies.entrySet()) {
+            Histogram histogram = latency.getValue();
+            System.out.printf("%-6s n=%-6d p50=%.1fms p99=%.1fms p99.9=%.1fms max=%.1fms%n", latency.getKey(),
+                    histogram.getTotalCount(), histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+            try (PrintStream out = new PrintStream(Files.newOutputStream(directory.resolve(latency.getKey().name().toLowerCase() + ".hgrm")))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+        }
+    }
+
+    static class Result {
+        final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        final AtomicInteger errors = new AtomicInteger();
+        long completed;
+        long elapsedNanos;
+
+        Result() {
+            for (Operation operation : Operation.values()) {
+                // microseconds, up to a minute, three significant digits
+                latencies.put(operation, new ConcurrentHistogram(TimeUnit.MINUTES.toMicros(1), 3));
+            }
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.luiz.libraryapi.performance;
+
+import com.luiz.libraryapi.LibraryApiApplication;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Boots the application in a fresh JVM, once with the default configuration and once with the
+ * {@code startup} profile, and measures the time from process launch to the first successful book
+ * query. The medians are written to {@code target/startup-test} and the startup profile fails the
+ * test when it exceeds {@code startup.max-ms} or runs slower than the default configuration.
+ * <p>
+ * Run with {@code ./mvnw -P performance,startup clean test -Dtest=StartupTimeTest}, tuning with
+ * {@code -Dstartup.runs}, {@code -Dstartup.max-ms} and {@code -Dstartup.jvm-args} (space separated, applied to
+ * both modes). The {@code startup} build profile adds the component index, which both modes then share.
+ */
+@Tag("performance")
+public class StartupTimeTest {
+
+    static final int RUNS = Integer.getInteger("startup.runs", 3);
+    static final long MAX_MILLIS = Long.getLong("startup.max-ms", 30000);
+    static final String JVM_ARGS = System.getProperty("startup.jvm-args", "");
+    static final Duration BOOT_TIMEOUT = Duration.ofMinutes(2);
+    static final Path OUTPUT = Paths.get("target", "startup-test");
+
+    HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    @Test
+    @DisplayName("Deve atender a primeira requisicao dentro do tempo definido com o profile startup")
+    public void timeToFirstRequestTest() throws Exception {
+        Files.createDirectories(OUTPUT);
+        long defaults = median("default");
+        long startup = median("startup");
+
+        try (PrintStream out = new PrintStream(Files.newOutputStream(OUTPUT.resolve("startup.properties")))) {
+            out.printf("default.ms=%d%nstartup.ms=%d%n", defaults, startup);
+        }
+        System.out.printf("time to first request: default %d ms, startup profile %d ms (median of %d)%n", defaults, startup, RUNS);
+
+        assertThat(startup).as("startup profile, ms to first request").isLessThanOrEqualTo(MAX_MILLIS);
+        assertThat(startup).as("startup profile against default, ms").isLessThanOrEqualTo(defaults);
+    }
+
+    private long median(String mode) throws Exception {
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            millis[i] = timeToFirstRequest(mode, OUTPUT.resolve(mode + "-" + i + ".log"));
+        }
+        Arrays.sort(millis);
+        return millis[RUNS / 2];
+    }
+
+    private long timeToFirstRequest(String mode, Path log) throws Exception {
+        int port = freePort();
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        if (!JVM_ARGS.isEmpty()) {
+            command.addAll(Arrays.asList(JVM_ARGS.trim().split("\\s+")));
+        }
+        command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"), LibraryApiApplication.class.getName(),
+                "--server.port=" + port,
+                "--spring.profiles.active=" + ("startup".equals(mode) ? "startup" : "default"),
+                "--spring.datasource.url=jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.jpa.hibernate.ddl-auto=create-drop"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/books?tittle=x&page=0&size=10"))
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+        try {
+            long deadline = start + BOOT_TIMEOUT.toNanos();
+            while (System.nanoTime() < deadline) {
+                assertThat(process.isAlive()).as("application exited, see %s", log).isTrue();
+                try {
+                    if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                    }
+                } catch (ConnectException notListeningYet) {
+                    // Tomcat is not bound yet
+                }
+                Thread.sleep(10);
+            }
+            throw new AssertionError("no successful request within " + BOOT_TIMEOUT + ", see " + log);
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
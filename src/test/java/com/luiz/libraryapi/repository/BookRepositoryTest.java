@@ -7,12 +7,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
@@ -25,6 +40,9 @@ public class BookRepositoryTest {
     @Autowired
     BookRepository bookRepository;
 
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
     @Test
     @DisplayName("Deve retornar verdadeiro quando existir um livro na base com o isbn informado")
     public void returnTrueWhenIsbnExists() {
@@ -55,6 +73,15 @@ public class BookRepositoryTest {
         assertThat(exists).isFalse();
     }
 
+    @Test
+    @DisplayName("Deve rejeitar no banco um segundo livro com o mesmo isbn")
+    public void uniqueIsbnTest() {
+        testEntityManager.persist(createNewBook());
+
+        assertThatThrownBy(() -> bookRepository.saveAndFlush(createNewBook()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+    }
+
     @Test
     @DisplayName("Deve obter um livro por id.")
     public void findByIdTest() {
@@ -91,4 +118,125 @@ public class BookRepositoryTest {
         Book deletedBook = testEntityManager.find(Book.class, book.getId());
         assertThat(deletedBook).isNull();
     }
+
+    @Test
+    @DisplayName("Deve obter um livro pelo isbn")
+    public void findByIsbnTest() {
+        Book book = createNewBook();
+        testEntityManager.persist(book);
+
+        Optional<Book> foundBook = bookRepository.findByIsbn("123");
+
+        assertThat(foundBook.isPresent()).isTrue();
+        assertThat(foundBook.get().getId()).isEqualTo(book.getId());
+    }
+
+    @Test
+    @DisplayName("Deve retornar apenas os isbns ja cadastrados")
+    public void findExistingIsbnsTest() {
+        testEntityManager.persist(createNewBook());
+
+        Set<String> existing = bookRepository.findExistingIsbns(Arrays.asList("123", "456"));
+
+        assertThat(existing).containsExactly("123");
+    }
+
+    @Test
+    @DisplayName("Deve paginar por cursor respeitando a ordenacao e os filtros")
+    public void findPageByKeysetTest() {
+        testEntityManager.persist(Book.builder().isbn("1").author("fulana").tittle("B aventuras").build());
+        testEntityManager.persist(Book.builder().isbn("2").author("fulana").tittle("A aventuras").build());
+        testEntityManager.persist(Book.builder().isbn("3").author("fulana").tittle("B aventuras").build());
+        testEntityManager.persist(Book.builder().isbn("4").author("ciclano").tittle("C aventuras").build());
+        Book filter = Book.builder().author("FULANA").build();
+
+        BookKeyset keyset = BookKeyset.first(Sort.by("tittle"));
+        List<Book> firstPage = bookRepository.findPage(filter, null, keyset, 2);
+        keyset = BookKeyset.decode(keyset.after(firstPage.get(1)).encode());
+        List<Book> secondPage = bookRepository.findPage(filter, null, keyset, 2);
+
+        assertThat(firstPage).extracting(Book::getIsbn).containsExactly("2", "1");
+        assertThat(secondPage).extracting(Book::getIsbn).containsExactly("3");
+    }
+
+    @Test
+    @DisplayName("Deve paginar por cursor livros sem titulo sem pular nem repetir registros")
+    public void findPageByKeysetWithNullKeysTest() {
+        testEntityManager.persist(Book.builder().isbn("1").author("fulana").tittle("B aventuras").build());
+        testEntityManager.persist(Book.builder().isbn("2").author("fulana").build());
+        testEntityManager.persist(Book.builder().isbn("3").author("fulana").tittle("A aventuras").build());
+        testEntityManager.persist(Book.builder().isbn("4").author("fulana").build());
+        testEntityManager.persist(Book.builder().isbn("5").author("fulana").tittle("").build());
+
+        assertThat(readAllPages(Sort.by("tittle").ascending())).containsExactly("2", "4", "5", "3", "1");
+        assertThat(readAllPages(Sort.by("tittle").descending())).containsExactly("1", "3", "5", "4", "2");
+    }
+
+    @Test
+    @DisplayName("Deve percorrer todos os livros em ordem de id")
+    public void streamAllTest() {
+        Book first = testEntityManager.persist(createNewBook());
+        Book second = testEntityManager.persist(Book.builder().isbn("456").author("fulana").tittle("Outras aventuras").build());
+
+        List<Long> ids;
+        try (Stream<Book> books = bookRepository.streamAll()) {
+            ids = books.map(Book::getId).collect(Collectors.toList());
+        }
+
+        assertThat(ids).containsExactly(first.getId(), second.getId());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve servir o livro do cache de segundo nivel e refletir as atualizacoes")
+    public void secondLevelCacheTest() {
+        Cache cache = entityManagerFactory.getCache();
+        Book book = bookRepository.save(createNewBook());
+        cache.evictAll();
+
+        Book found = bookRepository.findById(book.getId()).get();
+        assertThat(cache.contains(Book.class, book.getId())).isTrue();
+
+        found.setTittle("Novo titulo");
+        bookRepository.save(found);
+
+        assertThat(cache.contains(Book.class, book.getId())).isTrue();
+        assertThat(bookRepository.findById(book.getId()).get().getTittle()).isEqualTo("Novo titulo");
+
+        bookRepository.deleteById(book.getId());
+        assertThat(bookRepository.findById(book.getId())).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve rejeitar a gravacao de uma versao desatualizada do livro")
+    public void optimisticLockTest() {
+        Book book = bookRepository.save(createNewBook());
+        Book first = bookRepository.findById(book.getId()).get();
+        Book second = bookRepository.findById(book.getId()).get();
+
+        first.setTittle("Primeira");
+        assertThat(bookRepository.save(first).getVersion()).isEqualTo(book.getVersion() + 1);
+
+        second.setTittle("Segunda");
+        try {
+            assertThatThrownBy(() -> bookRepository.save(second)).isInstanceOf(ObjectOptimisticLockingFailureException.class);
+        } finally {
+            bookRepository.deleteById(book.getId());
+        }
+    }
+
+    private List<String> readAllPages(Sort sort) {
+        List<String> isbns = new ArrayList<>();
+        BookKeyset keyset = BookKeyset.first(sort);
+        List<Book> page;
+        do {
+            page = bookRepository.findPage(new Book(), null, keyset, 2);
+            page.forEach(book -> isbns.add(book.getIsbn()));
+            if (!page.isEmpty()) {
+                keyset = BookKeyset.decode(keyset.after(page.get(page.size() - 1)).encode());
+            }
+        } while (page.size() == 2);
+        return isbns;
+    }
 }
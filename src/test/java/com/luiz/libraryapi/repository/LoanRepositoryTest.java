@@ -0,0 +1,103 @@
+package com.luiz.libraryapi.repository;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class LoanRepositoryTest {
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Deve listar emprestimos paginados com uma consulta e uma contagem, sem carregar entidades")
+    public void findSummariesStatementCountTest() {
+        for (int i = 0; i < 5; i++) {
+            Book book = testEntityManager.persist(Book.builder().isbn("isbn" + i).author("fulana").tittle("Livro " + i).build());
+            testEntityManager.persist(Loan.builder().isbn(book.getIsbn()).customer(i % 2 == 0 ? "Fulano" : "Ciclano")
+                    .book(book).loanDate(LocalDate.now()).returned(false).build());
+        }
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        Page<LoanSummaryDTO> page = loanRepository.findSummaries("fulano", null, false, PageRequest.of(0, 2, Sort.by("isbn")));
+
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(page.getContent()).extracting(LoanSummaryDTO::getBookTittle).containsExactly("Livro 0", "Livro 2");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve marcar como devolvidos apenas os emprestimos ativos e informar quais foram alterados")
+    public void markReturnedTest() {
+        Long active = testEntityManager.persist(Loan.builder().isbn("isbn0").customer("Fulano")
+                .loanDate(LocalDate.now()).returned(false).build()).getId();
+        Long returned = testEntityManager.persist(Loan.builder().isbn("isbn1").customer("Fulano")
+                .loanDate(LocalDate.now()).returned(true).build()).getId();
+        testEntityManager.persist(Loan.builder().isbn("isbn2").customer("Fulano")
+                .loanDate(LocalDate.now()).returned(false).build());
+        testEntityManager.flush();
+        testEntityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        assertThat(loanRepository.findActiveReturnStates(Arrays.asList("isbn0", "isbn1")))
+                .extracting(LoanRepository.ReturnState::getId).containsExactly(active);
+        assertThat(loanRepository.markReturned(Arrays.asList(active, returned))).containsExactly(active);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(3);
+        assertThat(statistics.getEntityLoadCount()).isZero();
+
+        assertThat(loanRepository.findReturnStates(Arrays.asList(active, returned)))
+                .extracting(LoanRepository.ReturnState::getReturned).containsOnly(true);
+        assertThat(loanRepository.existsByIsbnAndReturnedFalse("isbn2")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve contar os emprestimos ativos agrupados por isbn e por cliente")
+    public void countActiveTest() {
+        testEntityManager.persist(Loan.builder().isbn("isbn0").customer("Fulano").loanDate(LocalDate.now()).returned(false).build());
+        testEntityManager.persist(Loan.builder().isbn("isbn1").customer("Fulano").loanDate(LocalDate.now()).returned(false).build());
+        testEntityManager.persist(Loan.builder().isbn("isbn2").customer("Fulano").loanDate(LocalDate.now()).returned(true).build());
+        testEntityManager.flush();
+
+        assertThat(loanRepository.countActiveByIsbn())
+                .extracting(LoanRepository.ActiveCount::getName).containsExactlyInAnyOrder("isbn0", "isbn1");
+        assertThat(loanRepository.countActiveByCustomer())
+                .extracting(LoanRepository.ActiveCount::getTotal).containsExactly(2l);
+        assertThat(loanRepository.countActiveByIsbn(Arrays.asList("isbn1", "isbn2")))
+                .extracting(LoanRepository.ActiveCount::getName).containsExactly("isbn1");
+        assertThat(loanRepository.countActiveByCustomer(Arrays.asList("Fulano", "Ciclano")))
+                .extracting(LoanRepository.ActiveCount::getTotal).containsExactly(2l);
+    }
+}
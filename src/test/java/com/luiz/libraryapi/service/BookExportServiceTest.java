@@ -0,0 +1,59 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.repository.BookRepository;
+import com.luiz.libraryapi.service.impl.BookExportServiceImpl;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import(BookExportServiceImpl.class)
+public class BookExportServiceTest {
+
+    @Autowired
+    BookExportService bookExportService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve exportar todos os livros sem povoar o cache de segundo nivel")
+    public void exportBooksTest() {
+        Book first = bookRepository.save(Book.builder().isbn("001").author("fulana").tittle("As aventuras").build());
+        Book second = bookRepository.save(Book.builder().isbn("002").author("fulana").tittle("Outras aventuras").build());
+        entityManagerFactory.getCache().evictAll();
+
+        try {
+            List<Long> ids = new ArrayList<>();
+            bookExportService.exportBooks(book -> ids.add(book.getId()));
+
+            assertThat(ids).containsExactly(first.getId(), second.getId());
+            assertThat(entityManagerFactory.getCache().contains(Book.class, first.getId())).isFalse();
+            assertThat(bookRepository.findById(first.getId())).isPresent();
+            assertThat(entityManagerFactory.getCache().contains(Book.class, first.getId())).isTrue();
+        } finally {
+            bookRepository.deleteAll(Arrays.asList(first, second));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.api.dto.BookImportReport;
+import com.luiz.libraryapi.api.io.BookImportRow;
+import com.luiz.libraryapi.repository.BookRepository;
+import com.luiz.libraryapi.service.impl.BookImportServiceImpl;
+import com.luiz.libraryapi.service.index.BookTextIndex;
+import com.luiz.libraryapi.service.index.IsbnFilter;
+import com.luiz.libraryapi.service.index.IsbnIndex;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+@Import({BookImportServiceImpl.class, IsbnIndex.class, IsbnFilter.class, BookTextIndex.class})
+@TestPropertySource(properties = "library.import.chunk-size=2")
+public class BookImportServiceTest {
+
+    @Autowired
+    BookImportService bookImportService;
+
+    @Autowired
+    BookRepository bookRepository;
+
+    @Autowired
+    IsbnIndex isbnIndex;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Test
+    @DisplayName("Deve importar os livros validos e reportar os isbns duplicados na base e no arquivo")
+    public void importBooksTest() {
+        testEntityManager.persist(Book.builder().isbn("001").author("fulana").tittle("Ja cadastrado").build());
+
+        BookImportReport report = bookImportService.importBooks(Arrays.asList(
+                BookImportRow.valid(1, createBook("001")),
+                BookImportRow.valid(2, createBook("002")),
+                BookImportRow.invalid(3, "isbn must not be empty"),
+                BookImportRow.valid(4, createBook("003")),
+                BookImportRow.valid(5, createBook("003")),
+                BookImportRow.valid(6, createBook("004"))
+        ).iterator());
+
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getRejected()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(BookImportReport.RowError::getLine).containsExactly(1l, 3l, 5l);
+        assertThat(bookRepository.count()).isEqualTo(4);
+        assertThat(isbnIndex.contains("004")).isTrue();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve reportar apenas as linhas recusadas pelo banco quando o lote falhar")
+    public void importChunkRejectedByDatabaseTest() {
+        Book invalid = createBook("102");
+        invalid.setTittle(String.join("", Collections.nCopies(300, "a")));
+
+        try {
+            BookImportReport report = bookImportService.importBooks(Arrays.asList(
+                    BookImportRow.valid(1, createBook("101")),
+                    BookImportRow.valid(2, invalid),
+                    BookImportRow.valid(3, createBook("103"))
+            ).iterator());
+
+            assertThat(report.getImported()).isEqualTo(2);
+            assertThat(report.getErrors()).extracting(BookImportReport.RowError::getLine).containsExactly(2l);
+            assertThat(bookRepository.findExistingIsbns(Arrays.asList("101", "102", "103"))).containsOnly("101", "103");
+            assertThat(isbnIndex.contains("101")).isTrue();
+            assertThat(isbnIndex.contains("102")).isFalse();
+        } finally {
+            bookRepository.deleteAll();
+        }
+    }
+
+    private Book createBook(String isbn) {
+        return Book.builder().isbn(isbn).author("fulana").tittle("AS aventuras " + isbn).build();
+    }
+}
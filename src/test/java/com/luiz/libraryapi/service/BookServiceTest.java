@@ -4,6 +4,12 @@ import com.luiz.libraryapi.api.domain.Book;
 import com.luiz.libraryapi.exception.BusinessException;
 import com.luiz.libraryapi.repository.BookRepository;
 import com.luiz.libraryapi.service.impl.BookServiceImpl;
+import com.luiz.libraryapi.service.index.BookTextIndex;
+import com.luiz.libraryapi.service.index.IsbnFilter;
+import com.luiz.libraryapi.service.index.IsbnIndex;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,16 +17,29 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Example;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -34,9 +53,36 @@ public class BookServiceTest {
     @MockBean
     BookRepository bookRepository;
 
+    IsbnIndex isbnIndex;
+
+    BookTextIndex bookTextIndex;
+
+    IsbnFilter isbnFilter;
+
+    SimpleMeterRegistry meterRegistry;
+
     @BeforeEach
     public void setUp() {
-        this.bookService = new BookServiceImpl(bookRepository);
+        this.isbnIndex = new IsbnIndex();
+        this.bookTextIndex = new BookTextIndex(1000);
+        this.isbnFilter = new IsbnFilter(1000, 0.01);
+        this.meterRegistry = new SimpleMeterRegistry();
+        this.bookService = new BookServiceImpl(bookRepository, isbnIndex, bookTextIndex, isbnFilter,
+                new StageTimers(meterRegistry));
+    }
+
+    @Test
+    @DisplayName("Deve medir o tempo de validacao e de repositorio ao salvar um livro")
+    public void saveBookRecordsStageTimersTest() {
+        Book book = createValidBook();
+        Mockito.when(bookRepository.existsByIsbn(Mockito.anyString())).thenReturn(false);
+        Mockito.when(bookRepository.save(book)).thenReturn(Book.builder().id(1L).isbn("123").build());
+
+        bookService.save(book);
+
+        assertThat(stageTimer("BookService.save", "validation").count()).isEqualTo(1);
+        assertThat(stageTimer("BookService.save", "repository").count()).isEqualTo(1);
+        assertThat(stageTimer("BookService.save", "mapping").count()).isZero();
     }
 
     @Test
@@ -77,10 +123,80 @@ public class BookServiceTest {
         Mockito.verify(bookRepository, Mockito.never()).save(book);
     }
 
+    @Test
+    @DisplayName("Deve salvar sem consultar o isbn quando o filtro garante que ele nao existe")
+    public void saveBookSkipsExistsWhenFilterSaysNoTest() {
+        isbnFilter.rebuild(1, () -> Arrays.asList("999"));
+        Book book = createValidBook();
+        Mockito.when(bookRepository.save(book)).thenReturn(Book.builder().id(1L).isbn("123").build());
+
+        bookService.save(book);
+
+        Mockito.verify(bookRepository, Mockito.never()).existsByIsbn(Mockito.anyString());
+        assertThat(isbnFilter.mightContain("123")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negocio quando a restricao de isbn unico for violada no banco")
+    public void saveBookMapsUniqueViolationTest() {
+        isbnFilter.rebuild(0, Collections::emptyList);
+        Book book = createValidBook();
+        Mockito.when(bookRepository.save(book)).thenThrow(new DataIntegrityViolationException("idx_book_isbn"));
+
+        Throwable exception = Assertions.catchThrowable(() -> bookService.save(book));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn já Cadastrado");
+    }
+
     private Book createValidBook() {
         return Book.builder().isbn("123").author("fulana").tittle("AS aventuras").build();
     }
 
+    @Test
+    @DisplayName("Deve consultar o banco uma unica vez quando muitas requisicoes buscam o mesmo livro ao mesmo tempo")
+    public void getByIdStampedeTest() throws Exception {
+        int callers = 16;
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(bookRepository.findById(1l)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return Optional.of(Book.builder().id(1l).isbn("123").tittle("AS aventuras").build());
+        });
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(callers, task -> {
+            Thread thread = new Thread(task);
+            threads.add(thread);
+            return thread;
+        });
+        try {
+            List<Future<Optional<Book>>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> bookService.getById(1l)));
+            }
+            // the load is held open until every other caller is parked on it
+            assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (threads.stream().filter(BookServiceTest::joinedLoad).count() < callers - 1 && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            Set<Book> books = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (Future<Optional<Book>> result : results) {
+                Book book = result.get(10, TimeUnit.SECONDS).get();
+                assertThat(book.getTittle()).isEqualTo("AS aventuras");
+                books.add(book);
+            }
+
+            Mockito.verify(bookRepository, Mockito.times(1)).findById(1l);
+            assertThat(books).hasSize(callers);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     @Test
     @DisplayName("Deve obter um livro por id")
     public void getByIdTest() {
@@ -156,6 +272,38 @@ public class BookServiceTest {
 
     }
 
+    @Test
+    @DisplayName("Deve contar a remocao do isbn antigo no filtro ao trocar o isbn de um livro")
+    public void updateBookIsbnRecordsRemovalTest() {
+        IsbnFilter filter = Mockito.spy(isbnFilter);
+        BookService service = new BookServiceImpl(bookRepository, isbnIndex, bookTextIndex, filter, new StageTimers(meterRegistry));
+        isbnIndex.put("123", 1l);
+        Book book = Book.builder().id(1l).isbn("456").author("fulana").tittle("AS aventuras").build();
+        Mockito.when(bookRepository.save(book)).thenReturn(book);
+
+        service.update(book);
+
+        Mockito.verify(filter).remove("123");
+        assertThat(isbnIndex.getId("456")).isEqualTo(1l);
+        assertThat(isbnIndex.contains("123")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negocio ao atualizar um livro para um isbn ja cadastrado")
+    public void updateBookDuplicatedIsbnTest() {
+        isbnIndex.put("123", 1l);
+        Book book = Book.builder().id(1l).isbn("456").author("fulana").tittle("AS aventuras").build();
+        Mockito.when(bookRepository.save(book)).thenThrow(new DataIntegrityViolationException("idx_book_isbn"));
+
+        Throwable exception = Assertions.catchThrowable(() -> bookService.update(book));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn já Cadastrado");
+        assertThat(isbnIndex.getId("123")).isEqualTo(1l);
+        assertThat(isbnIndex.contains("456")).isFalse();
+    }
+
     @Test
     @DisplayName("Deve ocorrer erro ao tentar atualizar um livro inexistente")
     public void updateInvalidBookTest() {
@@ -187,4 +335,111 @@ public class BookServiceTest {
         assertThat(result.getPageable().getPageNumber()).isEqualTo(0);
         assertThat(result.getPageable().getPageSize()).isEqualTo(10);
     }
+
+    @Test
+    @DisplayName("Deve lançar erro de isbn duplicado sem consultar a base quando o indice conhece o isbn")
+    public void shouldNotQueryRepositoryWhenIsbnIsIndexed() {
+        Book book = createValidBook();
+        isbnIndex.put(book.getIsbn(), 1l);
+
+        Throwable exception = Assertions.catchThrowable(() -> bookService.save(book));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Isbn já Cadastrado");
+        Mockito.verify(bookRepository, Mockito.never()).existsByIsbn(Mockito.anyString());
+        Mockito.verify(bookRepository, Mockito.never()).save(book);
+    }
+
+    @Test
+    @DisplayName("Deve obter um livro carregado pelo id do isbn indexado sem consultar pelo isbn")
+    public void getBookByIndexedIsbnTest() {
+        Book book = createValidBook();
+        book.setId(1l);
+        isbnIndex.put("123", 1l);
+        Mockito.when(bookRepository.findById(1l)).thenReturn(Optional.of(book));
+
+        Optional<Book> foundBook = bookService.getBookByIsbn("123");
+
+        assertThat(foundBook).contains(book);
+        Mockito.verify(bookRepository, Mockito.never()).findByIsbn(Mockito.anyString());
+        Mockito.verify(bookRepository, Mockito.never()).getOne(Mockito.anyLong());
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio e limpar o indice quando o isbn indexado aponta para um livro removido")
+    public void getBookByStaleIndexedIsbnTest() {
+        isbnIndex.put("123", 1l);
+        Mockito.when(bookRepository.findById(1l)).thenReturn(Optional.empty());
+        Mockito.when(bookRepository.findByIsbn("123")).thenReturn(Optional.empty());
+
+        Optional<Book> foundBook = bookService.getBookByIsbn("123");
+
+        assertThat(foundBook).isEmpty();
+        assertThat(isbnIndex.contains("123")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve buscar o livro na base e indexar o isbn quando o indice nao o conhece")
+    public void getBookByIsbnFallbackTest() {
+        Book book = createValidBook();
+        book.setId(1l);
+        Mockito.when(bookRepository.findByIsbn("123")).thenReturn(Optional.of(book));
+
+        Optional<Book> foundBook = bookService.getBookByIsbn("123");
+
+        assertThat(foundBook).contains(book);
+        assertThat(isbnIndex.getId("123")).isEqualTo(1l);
+    }
+
+    @Test
+    @DisplayName("Deve remover o isbn do indice ao deletar um livro")
+    public void deleteBookRemovesIsbnFromIndexTest() {
+        Book book = createValidBook();
+        book.setId(1l);
+        isbnIndex.put(book.getIsbn(), book.getId());
+
+        bookService.delete(book);
+
+        assertThat(isbnIndex.contains(book.getIsbn())).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve retornar pagina vazia sem consultar a base quando o indice de texto nao encontra o termo")
+    public void findBookWithoutIndexMatchTest() {
+        bookTextIndex.put(1l, "AS aventuras", "fulana");
+        bookTextIndex.markReady();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+
+        Page<Book> result = bookService.find(Book.builder().tittle("desventuras").build(), pageRequest);
+
+        assertThat(result.getTotalElements()).isEqualTo(0);
+        Mockito.verifyNoInteractions(bookRepository);
+    }
+
+    @Test
+    @DisplayName("Deve filtrar livros pelos ids resolvidos no indice de texto")
+    public void findBookWithIndexMatchTest() {
+        Book book = createValidBook();
+        book.setId(1l);
+        bookTextIndex.put(1l, book.getTittle(), book.getAuthor());
+        bookTextIndex.markReady();
+        PageRequest pageRequest = PageRequest.of(0, 10);
+        Page<Book> page = new PageImpl<>(Arrays.asList(book), pageRequest, 1);
+        Mockito.when(bookRepository.findAll(Mockito.any(Specification.class), Mockito.any(PageRequest.class))).thenReturn(page);
+
+        Page<Book> result = bookService.find(Book.builder().tittle("ventur").build(), pageRequest);
+
+        assertThat(result.getContent()).containsExactly(book);
+        Mockito.verify(bookRepository, Mockito.never()).findAll(Mockito.any(Example.class), Mockito.any(PageRequest.class));
+    }
+
+    private Timer stageTimer(String method, String stage) {
+        return meterRegistry.get(StageTimers.METRIC_NAME).tag("method", method).tag("stage", stage).timer();
+    }
+
+    private static boolean joinedLoad(Thread thread) {
+        return Arrays.stream(thread.getStackTrace())
+                .anyMatch(frame -> frame.getClassName().startsWith(CompletableFuture.class.getName()));
+    }
 }
@@ -0,0 +1,83 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanReturnReport;
+import com.luiz.libraryapi.repository.LoanRepository;
+import com.luiz.libraryapi.service.impl.LoanImpl;
+import com.luiz.libraryapi.service.index.ActiveLoanCounters;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest
+public class LoanReturnServiceTest {
+
+    @Autowired
+    LoanRepository loanRepository;
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DisplayName("Deve devolver o emprestimo uma unica vez quando muitas devolucoes concorrentes disputam o mesmo id")
+    public void concurrentReturnsOfSameLoanTest() throws Exception {
+        Loan loan = loanRepository.save(Loan.builder().isbn("isbn-32").customer("Fulano").loanDate(LocalDate.now()).returned(false).build());
+        Loan other = loanRepository.save(Loan.builder().isbn("isbn-33").customer("Fulano").loanDate(LocalDate.now()).returned(false).build());
+        ActiveLoanCounters counters = new ActiveLoanCounters();
+        LoanImpl loanService = new LoanImpl(loanRepository, 16, new StageTimers(new SimpleMeterRegistry()), Optional.empty(), 500, counters);
+        loanService.reconcileActiveLoans();
+
+        int callers = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Callable<LoanReturnReport>> returns = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                returns.add(() -> {
+                    start.await(5, TimeUnit.SECONDS);
+                    return loanService.returnLoans(Arrays.asList(loan.getId()), Collections.emptyList());
+                });
+            }
+            List<Future<LoanReturnReport>> results = new ArrayList<>();
+            returns.forEach(task -> results.add(executor.submit(task)));
+            start.countDown();
+            long returned = 0;
+            for (Future<LoanReturnReport> result : results) {
+                LoanReturnReport report = result.get(10, TimeUnit.SECONDS);
+                assertThat(report.getItems()).hasSize(1);
+                returned += report.getReturned();
+            }
+
+            assertThat(returned).isEqualTo(1);
+            assertThat(counters.activeLoansForBook("isbn-32")).isZero();
+            assertThat(counters.activeLoansForCustomer("Fulano")).isEqualTo(1);
+            assertThat(loanService.isAvailable("isbn-33")).isFalse();
+        } finally {
+            executor.shutdownNow();
+            loanRepository.deleteAll(Arrays.asList(loan, other));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.domain.Book;
+import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanReturnReport;
+import com.luiz.libraryapi.exception.BusinessException;
+import com.luiz.libraryapi.repository.LoanRepository;
+import com.luiz.libraryapi.service.concurrent.GroupCommitter;
+import com.luiz.libraryapi.service.impl.LoanImpl;
+import com.luiz.libraryapi.service.index.ActiveLoanCounters;
+import com.luiz.libraryapi.service.metrics.StageTimers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class LoanServiceTest {
+
+    LoanService loanService;
+
+    @MockBean
+    LoanRepository loanRepository;
+
+    @BeforeEach
+    public void setUp() {
+        this.loanService = new LoanImpl(loanRepository, 16, new StageTimers(new SimpleMeterRegistry()), Optional.empty(), 500, new ActiveLoanCounters());
+        Mockito.when(loanRepository.markReturned(Mockito.anyCollection()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Deve salvar um emprestimo")
+    public void saveLoanTest() {
+        Loan loan = createLoan();
+        Mockito.when(loanRepository.existsByIsbnAndReturnedFalse("123")).thenReturn(false);
+        Mockito.when(loanRepository.save(loan)).thenReturn(Loan.builder().id(1l).isbn("123").returned(false).build());
+
+        Loan savedLoan = loanService.save(loan);
+
+        assertThat(savedLoan.getId()).isEqualTo(1l);
+        assertThat(loan.getReturned()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve lançar erro de negocio ao tentar emprestar um livro ja emprestado")
+    public void loanedBookSaveTest() {
+        Loan loan = createLoan();
+        Mockito.when(loanRepository.existsByIsbnAndReturnedFalse("123")).thenReturn(true);
+
+        Throwable exception = Assertions.catchThrowable(() -> loanService.save(loan));
+
+        assertThat(exception)
+                .isInstanceOf(BusinessException.class)
+                .hasMessage("Book already loaned");
+        Mockito.verify(loanRepository, Mockito.never()).save(loan);
+    }
+
+    @Test
+    @DisplayName("Deve permitir apenas um emprestimo quando pedidos concorrentes disputam o mesmo isbn")
+    public void concurrentLoansOnSameIsbnTest() throws Exception {
+        AtomicBoolean loaned = new AtomicBoolean();
+        Mockito.when(loanRepository.existsByIsbnAndReturnedFalse("123")).thenAnswer(invocation -> loaned.get());
+        Mockito.when(loanRepository.save(Mockito.any(Loan.class))).thenAnswer(invocation -> {
+            Thread.sleep(5);
+            loaned.set(true);
+            return invocation.getArgument(0);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Loan>> requests = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            requests.add(() -> loanService.save(createLoan()));
+        }
+        int created = 0;
+        for (Future<Loan> result : executor.invokeAll(requests)) {
+            try {
+                result.get();
+                created++;
+            } catch (Exception ex) {
+                assertThat(ex.getCause()).isInstanceOf(BusinessException.class);
+            }
+        }
+        executor.shutdown();
+
+        assertThat(created).isEqualTo(1);
+        Mockito.verify(loanRepository, Mockito.times(1)).save(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve agrupar emprestimos concorrentes em um unico lote sem permitir dois emprestimos do mesmo isbn")
+    public void groupCommitLoansTest() throws Exception {
+        Mockito.when(loanRepository.existsByIsbnAndReturnedFalse(Mockito.anyString())).thenReturn(false);
+        AtomicLong ids = new AtomicLong();
+        List<Integer> batches = new CopyOnWriteArrayList<>();
+        GroupCommitter<Loan> groupCommitter = new GroupCommitter<>("loan", 64, Duration.ofMillis(50), loans -> {
+            batches.add(loans.size());
+            loans.forEach(loan -> loan.setId(ids.incrementAndGet()));
+            return loans;
+        }, new SimpleMeterRegistry());
+        LoanService groupedService = new LoanImpl(loanRepository, 16, new StageTimers(new SimpleMeterRegistry()), Optional.of(groupCommitter), 500, new ActiveLoanCounters());
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Callable<Loan>> requests = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            String isbn = i < 6 ? "isbn-" + i : "isbn-0";
+            requests.add(() -> groupedService.save(Loan.builder().isbn(isbn).customer("Fulano").loanDate(LocalDate.now()).build()));
+        }
+        int created = 0;
+        for (Future<Loan> result : executor.invokeAll(requests)) {
+            try {
+                assertThat(result.get().getId()).isNotNull();
+                created++;
+            } catch (Exception ex) {
+                assertThat(ex.getCause()).isInstanceOf(BusinessException.class);
+            }
+        }
+        executor.shutdown();
+        groupCommitter.close();
+
+        assertThat(created).isEqualTo(6);
+        assertThat(batches.size()).isLessThan(6);
+        Mockito.verify(loanRepository, Mockito.never()).save(Mockito.any(Loan.class));
+    }
+
+    @Test
+    @DisplayName("Deve devolver todos os emprestimos ativos de um isbn")
+    public void returnLoansByIsbnWithSeveralActiveLoansTest() {
+        Mockito.when(loanRepository.findActiveReturnStates(Mockito.anyCollection()))
+                .thenReturn(Arrays.asList(returnState(10l, "isbn10", false), returnState(12l, "isbn10", false)));
+
+        LoanReturnReport report = loanService.returnLoans(Arrays.asList(), Arrays.asList("isbn10"));
+
+        assertThat(report.getReturned()).isEqualTo(2);
+        assertThat(report.returnedLoanIds()).containsExactly(10l, 12l);
+        Mockito.verify(loanRepository).markReturned(Arrays.asList(10l, 12l));
+    }
+
+    @Test
+    @DisplayName("Deve devolver emprestimos em lotes e informar o resultado de cada item")
+    public void returnLoansTest() {
+        LoanService chunkedService = new LoanImpl(loanRepository, 16, new StageTimers(new SimpleMeterRegistry()), Optional.empty(), 2, new ActiveLoanCounters());
+        Mockito.when(loanRepository.findReturnStates(Mockito.anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id != 3l)
+                    .map(id -> returnState(id, "isbn" + id, id == 2l))
+                    .collect(Collectors.toList());
+        });
+        Mockito.when(loanRepository.findActiveReturnStates(Mockito.anyCollection()))
+                .thenReturn(Arrays.asList(returnState(10l, "isbn10", false)));
+
+        LoanReturnReport report = chunkedService.returnLoans(Arrays.asList(1l, 2l, 3l, 1l), Arrays.asList("isbn10", "isbn11"));
+
+        assertThat(report.getReturned()).isEqualTo(2);
+        assertThat(report.getItems()).extracting(LoanReturnReport.Item::getStatus).containsExactly(
+                LoanReturnReport.Status.RETURNED, LoanReturnReport.Status.ALREADY_RETURNED,
+                LoanReturnReport.Status.NOT_FOUND, LoanReturnReport.Status.RETURNED, LoanReturnReport.Status.NOT_FOUND);
+        assertThat(report.returnedLoanIds()).containsExactly(1l, 10l);
+        Mockito.verify(loanRepository, Mockito.times(2)).findReturnStates(Mockito.anyCollection());
+        Mockito.verify(loanRepository).markReturned(Arrays.asList(1l));
+        Mockito.verify(loanRepository).markReturned(Arrays.asList(10l));
+        Mockito.verify(loanRepository, Mockito.never()).findAll();
+    }
+
+    @Test
+    @DisplayName("Deve usar os contadores reconciliados para validar emprestimos sem consultar o banco")
+    public void activeLoanCountersTest() {
+        Mockito.when(loanRepository.countActiveByIsbn()).thenReturn(Arrays.asList(activeCount("123", 1l)));
+        Mockito.when(loanRepository.countActiveByCustomer()).thenReturn(Arrays.asList(activeCount("Fulano", 1l)));
+        Mockito.when(loanRepository.save(Mockito.any(Loan.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(loanRepository.findActiveReturnStates(Mockito.anyCollection()))
+                .thenReturn(Arrays.asList(returnState(1l, "123", false)));
+        LoanImpl service = (LoanImpl) loanService;
+        service.reconcileActiveLoans();
+
+        assertThat(service.isAvailable("123")).isFalse();
+        assertThat(service.countActiveLoans("Fulano")).isEqualTo(1);
+        Assertions.assertThatThrownBy(() -> service.save(createLoan())).isInstanceOf(BusinessException.class);
+
+        service.returnLoans(Arrays.asList(), Arrays.asList("123"));
+        service.save(createLoan());
+
+        assertThat(service.isAvailable("123")).isFalse();
+        assertThat(service.countActiveLoans("Fulano")).isEqualTo(1);
+        Mockito.verify(loanRepository, Mockito.never()).existsByIsbnAndReturnedFalse(Mockito.anyString());
+        Mockito.verify(loanRepository, Mockito.never()).countByCustomerAndReturnedFalse(Mockito.anyString());
+    }
+
+    private Loan createLoan() {
+        return Loan.builder()
+                .isbn("123")
+                .customer("Fulano")
+                .book(Book.builder().id(1l).isbn("123").build())
+                .loanDate(LocalDate.now())
+                .build();
+    }
+
+    private static LoanRepository.ActiveCount activeCount(String name, Long total) {
+        return new LoanRepository.ActiveCount() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Long getTotal() {
+                return total;
+            }
+        };
+    }
+
+    private static LoanRepository.ReturnState returnState(Long id, String isbn, boolean returned) {
+        return new LoanRepository.ReturnState() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getIsbn() {
+                return isbn;
+            }
+
+            @Override
+            public String getCustomer() {
+                return "Fulano";
+            }
+
+            @Override
+            public Boolean getReturned() {
+                return returned;
+            }
+        };
+    }
+}
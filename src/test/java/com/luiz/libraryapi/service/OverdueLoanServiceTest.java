@@ -0,0 +1,90 @@
+package com.luiz.libraryapi.service;
+
+import com.luiz.libraryapi.api.domain.Loan;
+import com.luiz.libraryapi.api.dto.LoanSummaryDTO;
+import com.luiz.libraryapi.repository.LoanRepository;
+import com.luiz.libraryapi.service.impl.OverdueLoanServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(OverdueLoanServiceImpl.class)
+@TestPropertySource(properties = {"library.overdue.chunk-size=2", "library.loan.days=3"})
+public class OverdueLoanServiceTest {
+
+    @Autowired
+    OverdueLoanService overdueLoanService;
+
+    @Autowired
+    TestEntityManager testEntityManager;
+
+    @Autowired
+    EntityManagerFactory entityManagerFactory;
+
+    @Test
+    @DisplayName("Deve registrar apenas emprestimos atrasados e nao devolvidos, lendo so os novos a cada execucao")
+    public void incrementalScanTest() {
+        Long first = persistLoan(10, false);
+        Long second = persistLoan(9, false);
+        Long third = persistLoan(5, false);
+        persistLoan(8, true);
+        persistLoan(1, false);
+
+        assertThat(overdueLoanService.scan()).isEqualTo(3);
+        assertThat(overdueLoanService.find(PageRequest.of(0, 10)).getContent())
+                .extracting(LoanSummaryDTO::getId).containsExactly(first, second, third);
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        assertThat(overdueLoanService.scan()).isZero();
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+
+        Long fourth = persistLoan(4, false);
+        assertThat(overdueLoanService.scan()).isEqualTo(1);
+        assertThat(overdueLoanService.find(PageRequest.of(1, 2)).getContent())
+                .extracting(LoanSummaryDTO::getId).containsExactly(third, fourth);
+    }
+
+    @Test
+    @DisplayName("Deve descartar o emprestimo devolvido entre a leitura e o registro da varredura")
+    public void returnDuringScanTest() {
+        LoanRepository loanRepository = Mockito.mock(LoanRepository.class);
+        OverdueLoanService service = new OverdueLoanServiceImpl(loanRepository, 3, 2);
+        LoanSummaryDTO loan = LoanSummaryDTO.builder().id(1l).loanDate(LocalDate.now().minusDays(5)).returned(false).build();
+        Mockito.when(loanRepository.findOverdueAfter(Mockito.any(), Mockito.any(), Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(invocation -> {
+                    // the loan is returned right after the scan read it as still out
+                    service.remove(Collections.singletonList(1l));
+                    return Collections.singletonList(loan);
+                });
+
+        assertThat(service.scan()).isEqualTo(1);
+        assertThat(service.find(PageRequest.of(0, 10)).getContent()).isEmpty();
+    }
+
+    private Long persistLoan(int daysAgo, boolean returned) {
+        Loan loan = Loan.builder().isbn("123").customer("Fulano")
+                .loanDate(LocalDate.now().minusDays(daysAgo)).returned(returned).build();
+        return testEntityManager.persistAndFlush(loan).getId();
+    }
+}
@@ -0,0 +1,92 @@
+package com.luiz.libraryapi.service.concurrent;
+
+import com.luiz.libraryapi.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class AdmissionControlTest {
+
+    AtomicLong now = new AtomicLong();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    @DisplayName("Deve liberar a rajada, recusar o excesso e reabastecer conforme a taxa por cliente")
+    public void tokenBucketTest() {
+        AdmissionControl admission = new AdmissionControl(true, 2, 3, 100, 100, meterRegistry, now::get);
+
+        for (int i = 0; i < 3; i++) {
+            admission.acquire("Fulano");
+            admission.release();
+        }
+        assertThatThrownBy(() -> admission.acquire("Fulano"))
+                .isInstanceOf(TooManyRequestsException.class)
+                .satisfies(ex -> assertThat(((TooManyRequestsException) ex).getRetryAfterSeconds()).isEqualTo(1));
+        admission.acquire("Ciclano");
+        admission.release();
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        admission.acquire("Fulano");
+        admission.release();
+
+        assertThat(meterRegistry.get(AdmissionControl.METRIC_NAME).tag("reason", "rate").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve recusar quando o limite global de requisicoes em andamento for atingido")
+    public void concurrencyLimitTest() {
+        AdmissionControl admission = new AdmissionControl(true, 1000, 1000, 2, 100, meterRegistry, now::get);
+
+        admission.acquire("a");
+        admission.acquire("b");
+        assertThatThrownBy(() -> admission.acquire("c")).isInstanceOf(TooManyRequestsException.class);
+        admission.release();
+        admission.acquire("c");
+
+        assertThat(meterRegistry.get(AdmissionControl.METRIC_NAME).tag("reason", "concurrency").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve descartar os baldes cheios e manter a tabela limitada")
+    public void evictIdleBucketsTest() {
+        AdmissionControl admission = new AdmissionControl(true, 1, 2, 100, 2, meterRegistry, now::get);
+
+        admission.acquire("a");
+        admission.acquire("b");
+        assertThat(admission.customers()).isEqualTo(2);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        admission.acquire("c");
+
+        assertThat(admission.customers()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve admitir um novo cliente com a tabela cheia descartando o balde mais proximo de reabastecer")
+    public void fullTableEvictsOldestBucketTest() {
+        AdmissionControl admission = new AdmissionControl(true, 1, 2, 100, 2, meterRegistry, now::get);
+        exhaust(admission, "a");
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        exhaust(admission, "b");
+
+        admission.acquire("c");
+
+        assertThat(admission.customers()).isEqualTo(2);
+        assertThatThrownBy(() -> admission.acquire("b")).isInstanceOf(TooManyRequestsException.class);
+        admission.acquire("a");
+    }
+
+    private static void exhaust(AdmissionControl admission, String customer) {
+        for (int i = 0; i < 2; i++) {
+            admission.acquire(customer);
+            admission.release();
+        }
+        assertThatThrownBy(() -> admission.acquire(customer)).isInstanceOf(TooManyRequestsException.class);
+    }
+}
@@ -0,0 +1,75 @@
+package com.luiz.libraryapi.service.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class GroupCommitterTest {
+
+    @Test
+    @DisplayName("Deve gravar os itens enviados dentro da janela em um unico lote")
+    public void batchWithinWindowTest() throws Exception {
+        List<List<Integer>> batches = new CopyOnWriteArrayList<>();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", 10, Duration.ofMillis(200), items -> {
+            batches.add(new ArrayList<>(items));
+            return items.stream().map(item -> item * 10).collect(Collectors.toList());
+        }, registry);
+
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 1; i <= 5; i++) {
+            results.add(committer.submit(i));
+        }
+
+        assertThat(results.stream().map(CompletableFuture::join)).containsExactly(10, 20, 30, 40, 50);
+        assertThat(batches).containsExactly(List.of(1, 2, 3, 4, 5));
+        assertThat(registry.get("library.group_commit.batch.size").summary().count()).isEqualTo(1);
+        committer.close();
+    }
+
+    @Test
+    @DisplayName("Deve regravar item a item quando o lote falhar e falhar apenas o item invalido")
+    public void retryItemsWhenBatchFailsTest() throws Exception {
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", 10, Duration.ofMillis(200), items -> {
+            if (items.contains(-1)) {
+                throw new IllegalArgumentException("negativo");
+            }
+            return items;
+        }, new SimpleMeterRegistry());
+
+        CompletableFuture<Integer> valid = committer.submit(1);
+        CompletableFuture<Integer> invalid = committer.submit(-1);
+
+        assertThat(valid.join()).isEqualTo(1);
+        assertThatThrownBy(invalid::join).hasCauseInstanceOf(IllegalArgumentException.class);
+        committer.close();
+    }
+
+    @Test
+    @DisplayName("Deve falhar o lote e continuar gravando quando o escritor lancar um Error")
+    public void writerErrorTest() throws Exception {
+        GroupCommitter<Integer> committer = new GroupCommitter<>("test", 10, Duration.ofMillis(20), items -> {
+            if (items.contains(-1)) {
+                throw new StackOverflowError();
+            }
+            return items;
+        }, new SimpleMeterRegistry());
+
+        CompletableFuture<Integer> failed = committer.submit(-1);
+        assertThatThrownBy(() -> failed.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(StackOverflowError.class);
+
+        assertThat(committer.submit(1).get(5, TimeUnit.SECONDS)).isEqualTo(1);
+        committer.close();
+    }
+}
@@ -0,0 +1,59 @@
+package com.luiz.libraryapi.service.concurrent;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class RepositoryExecutorTest {
+
+    @Test
+    @DisplayName("Deve rejeitar imediatamente quando as threads e a fila estiverem ocupadas")
+    public void rejectWhenSaturatedTest() throws Exception {
+        RepositoryExecutor executor = new RepositoryExecutor(true, 1, 1, new SimpleMeterRegistry());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Boolean> running = executor.submit(() -> await(release));
+            CompletableFuture<Boolean> queued = executor.submit(() -> await(release));
+
+            assertThatThrownBy(() -> executor.submit(() -> true)).isInstanceOf(RejectedExecutionException.class);
+
+            release.countDown();
+            assertThat(running.get()).isTrue();
+            assertThat(queued.get()).isTrue();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve executar na propria thread quando o modo assincrono estiver desligado")
+    public void runInlineWhenDisabledTest() {
+        RepositoryExecutor executor = new RepositoryExecutor(false, 1, 1, new SimpleMeterRegistry());
+
+        CompletableFuture<String> result = executor.submit(() -> Thread.currentThread().getName());
+        CompletableFuture<Object> failed = executor.submit(() -> {
+            throw new IllegalStateException("falhou");
+        });
+
+        assertThat(result.join()).isEqualTo(Thread.currentThread().getName());
+        assertThat(failed).isCompletedExceptionally();
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            latch.await();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.luiz.libraryapi.service.concurrent;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SingleFlightTest {
+
+    @Test
+    @DisplayName("Deve entregar o resultado da carga em andamento aos demais chamadores da mesma chave")
+    public void coalesceTest() throws Exception {
+        SingleFlight<String, StringBuilder> singleFlight = new SingleFlight<>(value -> new StringBuilder(value));
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            CompletableFuture<StringBuilder> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("k", () -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                await(release);
+                return new StringBuilder("value");
+            }), executor);
+            loading.await();
+            CompletableFuture<StringBuilder> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("k", () -> {
+                loads.incrementAndGet();
+                return new StringBuilder("other");
+            }));
+            Thread.sleep(100);
+            release.countDown();
+
+            assertThat(follower.get().toString()).isEqualTo("value");
+            assertThat(follower.get()).isNotSameAs(leader.get());
+            assertThat(loads.get()).isEqualTo(1);
+            assertThat(singleFlight.inFlight()).isZero();
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve propagar a falha da carga e permitir uma nova tentativa")
+    public void failureTest() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>(value -> value);
+
+        assertThatThrownBy(() -> singleFlight.execute("k", () -> {
+            throw new IllegalStateException("down");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(singleFlight.execute("k", () -> "value")).isEqualTo("value");
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
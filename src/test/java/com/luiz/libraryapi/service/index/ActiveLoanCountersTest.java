@@ -0,0 +1,157 @@
+package com.luiz.libraryapi.service.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ActiveLoanCountersTest {
+
+    @Test
+    @DisplayName("Deve contar emprestimos ativos por livro e por cliente ao emprestar e devolver")
+    public void countTest() {
+        ActiveLoanCounters counters = new ActiveLoanCounters();
+
+        loan(counters, "123", "Fulano");
+        loan(counters, "456", "Fulano");
+        counters.begin("123", "Fulano");
+        counters.returned("123", "Fulano");
+        counters.begin("456", "Fulano");
+        counters.cancelled("456", "Fulano");
+
+        assertThat(counters.activeLoansForBook("123")).isZero();
+        assertThat(counters.activeLoansForBook("456")).isEqualTo(1);
+        assertThat(counters.activeLoansForCustomer("Fulano")).isEqualTo(1);
+        assertThat(counters.activeLoansForCustomer(null)).isZero();
+    }
+
+    @Test
+    @DisplayName("Deve substituir os contadores pelos valores do banco ao reconciliar")
+    public void reconcileTest() {
+        ActiveLoanCounters counters = new ActiveLoanCounters();
+        loan(counters, "123", "Fulano");
+
+        counters.reconcile(snapshot(Collections.singletonMap("456", 1), Collections.singletonMap("Ciclano", 1)));
+
+        assertThat(counters.isReady()).isTrue();
+        assertThat(counters.activeLoansForBook("123")).isZero();
+        assertThat(counters.activeLoansForBook("456")).isEqualTo(1);
+        assertThat(counters.activeLoansForCustomer("Fulano")).isZero();
+        assertThat(counters.activeLoansForCustomer("Ciclano")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve ler o snapshot sem bloquear escritas e recontar apenas as chaves alteradas durante a leitura")
+    public void reconcileWhileWritingTest() {
+        ActiveLoanCounters counters = new ActiveLoanCounters();
+        loan(counters, "789", "Beltrano");
+        List<String> recounted = new ArrayList<>();
+
+        counters.reconcile(new ActiveLoanCounters.SnapshotSource() {
+            @Override
+            public Map<String, Integer> activeLoansByIsbn() {
+                // a second loan of 789 commits on another thread while the snapshot is read; it is not in this snapshot
+                CompletableFuture.runAsync(() -> loan(counters, "789", "Ciclano")).join();
+                Map<String, Integer> counts = new HashMap<>();
+                counts.put("456", 1);
+                counts.put("789", 1);
+                return counts;
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByCustomer() {
+                // read after the loan above committed
+                Map<String, Integer> counts = new HashMap<>();
+                counts.put("Fulano", 1);
+                counts.put("Beltrano", 1);
+                counts.put("Ciclano", 1);
+                return counts;
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByIsbn(Collection<String> isbns) {
+                recounted.addAll(isbns);
+                return Collections.singletonMap("789", 2);
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByCustomer(Collection<String> customers) {
+                recounted.addAll(customers);
+                return Collections.emptyMap();
+            }
+        });
+
+        assertThat(recounted).containsExactly("789");
+        assertThat(counters.activeLoansForBook("456")).isEqualTo(1);
+        assertThat(counters.activeLoansForBook("789")).isEqualTo(2);
+        assertThat(counters.activeLoansForCustomer("Fulano")).isEqualTo(1);
+        assertThat(counters.activeLoansForCustomer("Ciclano")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve manter as chaves com escrita em andamento ao reconciliar e conta-las uma unica vez")
+    public void reconcileWithWriteInFlightTest() {
+        ActiveLoanCounters counters = new ActiveLoanCounters();
+        loan(counters, "123", "Fulano");
+        counters.begin("456", "Fulano");
+
+        // the loan of 456 is already in the database but not yet counted
+        Map<String, Integer> byIsbn = new HashMap<>();
+        byIsbn.put("123", 1);
+        byIsbn.put("456", 1);
+        counters.reconcile(snapshot(byIsbn, Collections.singletonMap("Fulano", 2)));
+
+        assertThat(counters.activeLoansForBook("456")).isZero();
+        assertThat(counters.activeLoansForCustomer("Fulano")).isEqualTo(1);
+
+        counters.loaned("456", "Fulano");
+        counters.reconcile(snapshot(byIsbn, Collections.singletonMap("Fulano", 2)));
+
+        assertThat(counters.activeLoansForBook("123")).isEqualTo(1);
+        assertThat(counters.activeLoansForBook("456")).isEqualTo(1);
+        assertThat(counters.activeLoansForCustomer("Fulano")).isEqualTo(2);
+    }
+
+    private static void loan(ActiveLoanCounters counters, String isbn, String customer) {
+        counters.begin(isbn, customer);
+        counters.loaned(isbn, customer);
+    }
+
+    private static ActiveLoanCounters.SnapshotSource snapshot(Map<String, Integer> byIsbn, Map<String, Integer> byCustomer) {
+        return new ActiveLoanCounters.SnapshotSource() {
+            @Override
+            public Map<String, Integer> activeLoansByIsbn() {
+                return byIsbn;
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByCustomer() {
+                return byCustomer;
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByIsbn(Collection<String> isbns) {
+                return only(byIsbn, isbns);
+            }
+
+            @Override
+            public Map<String, Integer> activeLoansByCustomer(Collection<String> customers) {
+                return only(byCustomer, customers);
+            }
+        };
+    }
+
+    private static Map<String, Integer> only(Map<String, Integer> counts, Collection<String> keys) {
+        Map<String, Integer> selected = new HashMap<>(counts);
+        selected.keySet().retainAll(keys);
+        return selected;
+    }
+}
@@ -0,0 +1,79 @@
+package com.luiz.libraryapi.service.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IsbnFilterTest {
+
+    @Test
+    @DisplayName("Deve responder talvez para todo isbn antes de ser construido")
+    public void notReadyTest() {
+        IsbnFilter filter = new IsbnFilter(1000, 0.01);
+
+        assertThat(filter.isReady()).isFalse();
+        assertThat(filter.mightContain("123")).isTrue();
+    }
+
+    @Test
+    @DisplayName("Deve nunca negar um isbn adicionado e errar pouco para os demais")
+    public void membershipTest() {
+        IsbnFilter filter = new IsbnFilter(10000, 0.01);
+        List<String> isbns = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            isbns.add("978-" + i);
+        }
+        filter.rebuild(isbns.size(), () -> isbns);
+        filter.put("new-isbn");
+
+        assertThat(isbns).allMatch(filter::mightContain);
+        assertThat(filter.mightContain("new-isbn")).isTrue();
+        long falsePositives = 0;
+        for (int i = 0; i < 10000; i++) {
+            if (filter.mightContain("979-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(300);
+    }
+
+    @Test
+    @DisplayName("Deve pedir reconstrucao quando muitos isbns forem removidos")
+    public void rebuildAfterRemovalsTest() {
+        IsbnFilter filter = new IsbnFilter(1000, 0.01);
+        filter.rebuild(0, Collections::emptyList);
+        for (int i = 0; i < 3000; i++) {
+            filter.put("isbn-" + i);
+            filter.remove("isbn-" + i);
+        }
+
+        assertThat(filter.needsRebuild()).isTrue();
+
+        filter.rebuild(0, Collections::emptyList);
+
+        assertThat(filter.needsRebuild()).isFalse();
+        assertThat(filter.mightContain("isbn-1")).isFalse();
+    }
+
+    @Test
+    @DisplayName("Deve manter no novo filtro um isbn salvo enquanto o snapshot da reconstrucao e lido")
+    public void putDuringRebuildTest() {
+        IsbnFilter filter = new IsbnFilter(1000, 0.01);
+        filter.rebuild(0, Collections::emptyList);
+
+        filter.rebuild(1, () -> {
+            // saved after the snapshot query ran, so the snapshot does not include it
+            List<String> snapshot = Collections.singletonList("978-1");
+            filter.put("978-2");
+            return snapshot;
+        });
+
+        assertThat(filter.mightContain("978-1")).isTrue();
+        assertThat(filter.mightContain("978-2")).isTrue();
+    }
+}
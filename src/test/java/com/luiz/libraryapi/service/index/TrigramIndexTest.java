@@ -0,0 +1,72 @@
+package com.luiz.libraryapi.service.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TrigramIndexTest {
+
+    @Test
+    @DisplayName("Deve encontrar os ids cujo texto contem o termo ignorando maiusculas")
+    public void searchTest() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1l, "As Aventuras de Arthur");
+        index.put(2l, "Desventuras em serie");
+        index.put(3l, "Arthur e os tres");
+
+        assertThat(index.search("VENTURA", 10)).containsExactlyInAnyOrder(1l, 2l);
+        assertThat(index.search("arthur", 10)).containsExactlyInAnyOrder(1l, 3l);
+        assertThat(index.search("tres arthur", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Deve nao responder para termos menores que um trigrama")
+    public void shortTermTest() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1l, "As aventuras");
+
+        assertThat(index.search("as", 10)).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve nao responder quando o termo encontra mais ids que o limite")
+    public void tooManyMatchesTest() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1l, "As aventuras");
+        index.put(2l, "Outras aventuras");
+
+        assertThat(index.search("aventuras", 1)).isNull();
+    }
+
+    @Test
+    @DisplayName("Deve refletir atualizacoes e remocoes no indice")
+    public void updateAndRemoveTest() {
+        TrigramIndex index = new TrigramIndex();
+        index.put(1l, "As aventuras");
+        index.put(1l, "O retorno");
+        index.put(2l, "O retorno do rei");
+        index.remove(2l);
+
+        assertThat(index.search("aventuras", 10)).isEmpty();
+        assertThat(index.search("retorno", 10)).containsExactly(1l);
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Deve manter as listas ordenadas com ids inseridos e removidos fora de ordem")
+    public void unorderedIdsTest() {
+        TrigramIndex index = new TrigramIndex();
+        for (long id = 20; id >= 1; id--) {
+            index.put(id, id % 2 == 0 ? "As aventuras " + id : "O retorno " + id);
+        }
+        index.put(25l, "Novas aventuras");
+        index.remove(4l);
+        index.remove(20l);
+        index.put(3l, "Aventuras de volta");
+
+        assertThat(index.search("aventuras", 20))
+                .containsExactlyInAnyOrder(2l, 3l, 6l, 8l, 10l, 12l, 14l, 16l, 18l, 25l);
+        assertThat(index.search("retorno 1", 20)).containsExactlyInAnyOrder(1l, 11l, 13l, 15l, 17l, 19l);
+    }
+}